@@ -1,15 +1,16 @@
 package ru.practicum.shareit.booking.client;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.shareit.booking.dto.BookingDecisionsDto;
 import ru.practicum.shareit.booking.dto.BookingItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingItemRequestsDto;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ServerClientFactory;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -17,37 +18,67 @@ public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        super(builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                .build()
-        );
+    public BookingClient(ServerClientFactory serverClientFactory) {
+        super(serverClientFactory, API_PREFIX);
     }
 
-    public ResponseEntity<Object> create(long userId, BookingItemRequestDto bookingItemRequestDto) {
+    public Mono<ResponseEntity<byte[]>> create(long userId, BookingItemRequestDto bookingItemRequestDto) {
         return post("", userId, bookingItemRequestDto);
     }
 
-    public ResponseEntity<Object> getBooking(long userId, Long bookingId) {
+    public Mono<ResponseEntity<byte[]>> createAll(long userId, BookingItemRequestsDto bookingItemRequestsDto) {
+        return post("/batch", userId, bookingItemRequestsDto);
+    }
+
+    public Mono<ResponseEntity<byte[]>> getBooking(long userId, Long bookingId) {
         return get("/" + bookingId, userId);
     }
 
-    public ResponseEntity<Object> getAll(long userId, String status, int from, int size) {
-        Map<String, Object> parameters = Map.of("state", status, "from", from, "size", size);
+    public Mono<ResponseEntity<byte[]>> getAll(long userId, String status, int from, int size, String after,
+                                               String view) {
+        return get("?" + pageQuery(after, view), userId, pageParameters(status, from, size, after, view));
+    }
 
-        return get("?state={state}&from={from}&size={size}", userId, parameters);
+    public Mono<ResponseEntity<byte[]>> getAllBookingByOwner(long userId, String status, Integer from, Integer size,
+                                                             String after, String view) {
+        return get("/owner?" + pageQuery(after, view), userId, pageParameters(status, from, size, after, view));
     }
 
-    public ResponseEntity<Object> getAllBookingByOwner(long userId, String status, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of("state", status, "from", from, "size", size);
+    public Mono<ResponseEntity<byte[]>> getStats(long userId) {
+        return get("/stats", userId);
+    }
 
-        return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
+    public Mono<ResponseEntity<byte[]>> getOwnerStats(long userId) {
+        return get("/owner/stats", userId);
     }
 
-    public ResponseEntity<Object> approve(long userId, long bookingId, Boolean approved) {
+    public Mono<ResponseEntity<byte[]>> approve(long userId, long bookingId, Boolean approved) {
         Map<String, Object> parameters = Map.of("approved", approved);
 
         return patch("/" + bookingId + "?approved={approved}", userId, parameters);
     }
-}
\ No newline at end of file
+
+    public Mono<ResponseEntity<byte[]>> approveAll(long userId, BookingDecisionsDto bookingDecisionsDto) {
+        return patch("/batch", userId, bookingDecisionsDto);
+    }
+
+    private static String pageQuery(String after, String view) {
+        String query = "state={state}&from={from}&size={size}";
+        if (after != null) {
+            query += "&after={after}";
+        }
+        return view == null ? query : query + "&view={view}";
+    }
+
+    private static Map<String, Object> pageParameters(String status, int from, int size, String after,
+                                                      String view) {
+        Map<String, Object> parameters = new HashMap<>(Map.of("state", status, "from", from, "size", size));
+        if (after != null) {
+            parameters.put("after", after);
+        }
+        if (view != null) {
+            parameters.put("view", view);
+        }
+        return parameters;
+    }
+}
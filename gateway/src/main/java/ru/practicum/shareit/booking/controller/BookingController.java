@@ -6,8 +6,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.client.BookingClient;
+import ru.practicum.shareit.booking.dto.BookingDecisionsDto;
 import ru.practicum.shareit.booking.dto.BookingItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingItemRequestsDto;
 import ru.practicum.shareit.exception.ValidationException;
 
 import javax.validation.Valid;
@@ -23,7 +26,7 @@ public class BookingController {
     private final BookingClient bookingClient;
 
     @PostMapping
-    public ResponseEntity<Object> create(
+    public Mono<ResponseEntity<byte[]>> create(
             @RequestHeader("X-Sharer-User-Id") long userId,
             @Valid @RequestBody BookingItemRequestDto bookingItemRequestDto) {
         if (bookingItemRequestDto.getEnd().isBefore(bookingItemRequestDto.getStart())) {
@@ -34,34 +37,66 @@ public class BookingController {
         return bookingClient.create(userId, bookingItemRequestDto);
     }
 
+    //Интервалы проверяются на сервере по каждой брони отдельно, ошибка одной не отменяет остальные
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<byte[]>> createAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                  @Valid @RequestBody BookingItemRequestsDto bookingItemRequestsDto) {
+        log.info("Получен запрос к эндпоинту: '{} {}', Бронирование: {} шт.", "POST", "/bookings/batch",
+                bookingItemRequestsDto.getBookings().size());
+        return bookingClient.createAll(userId, bookingItemRequestsDto);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getBooking(@RequestHeader("X-Sharer-User-Id") long userId, @PathVariable long id) {
+    public Mono<ResponseEntity<byte[]>> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                   @PathVariable long id) {
         log.info("GET booking id={}", id);
         return bookingClient.getBooking(userId, id);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
-                                         @RequestParam(defaultValue = "ALL") String state,
-                                         @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                         @RequestParam(defaultValue = "20") @Positive int size) {
+    public Mono<ResponseEntity<byte[]>> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                               @RequestParam(defaultValue = "ALL") String state,
+                                               @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                               @RequestParam(defaultValue = "20") @Positive int size,
+                                               @RequestParam(required = false) String after,
+                                               @RequestParam(required = false) String view) {
 
-        return bookingClient.getAll(userId, state, from, size);
+        return bookingClient.getAll(userId, state, from, size, after, view);
     }
 
 
     @GetMapping("/owner")
-    public ResponseEntity<Object> getAllBookingByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                       @RequestParam(defaultValue = "ALL") String state,
-                                                       @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                                       @RequestParam(defaultValue = "20") @Positive int size) {
+    public Mono<ResponseEntity<byte[]>> getAllBookingByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                             @RequestParam(defaultValue = "ALL") String state,
+                                                             @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                                             @RequestParam(defaultValue = "20") @Positive int size,
+                                                             @RequestParam(required = false) String after,
+                                                             @RequestParam(required = false) String view) {
+
+        return bookingClient.getAllBookingByOwner(userId, state, from, size, after, view);
+    }
+
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<byte[]>> getStats(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingClient.getStats(userId);
+    }
+
+    @GetMapping("/owner/stats")
+    public Mono<ResponseEntity<byte[]>> getOwnerStats(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingClient.getOwnerStats(userId);
+    }
 
-        return bookingClient.getAllBookingByOwner(userId, state, from, size);
+    @PatchMapping("/batch")
+    public Mono<ResponseEntity<byte[]>> approveAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                   @Valid @RequestBody BookingDecisionsDto bookingDecisionsDto) {
+        log.info("Получен запрос к эндпоинту: '{} {}', Подтверждение бронирований: {} шт.", "PATCH",
+                "/bookings/batch", bookingDecisionsDto.getDecisions().size());
+        return bookingClient.approveAll(userId, bookingDecisionsDto);
     }
 
     @PatchMapping("/{bookingId}")
-    public ResponseEntity<Object> approve(@RequestHeader("X-Sharer-User-Id") long userId,
-                                          @PathVariable long bookingId, @RequestParam Boolean approved) {
+    public Mono<ResponseEntity<byte[]>> approve(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                @PathVariable long bookingId, @RequestParam Boolean approved) {
         log.info("Получен запрос к эндпоинту: '{} {}', Подтверждение бронирование: ID: {}", "PATCH", "/bookings",
                 bookingId);
         return bookingClient.approve(userId, bookingId, approved);
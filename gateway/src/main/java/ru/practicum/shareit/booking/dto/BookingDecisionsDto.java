@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingDecisionsDto {
+    //Ограничение размера пакета: все решения применяются на сервере в одной транзакции
+    public static final int MAX_DECISIONS = 100;
+
+    @NotEmpty
+    @Size(max = MAX_DECISIONS)
+    private List<@Valid @NotNull BookingDecisionDto> decisions;
+}
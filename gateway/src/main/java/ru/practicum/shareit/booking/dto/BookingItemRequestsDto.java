@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingItemRequestsDto {
+    //Все брони пакета вставляются на сервере одной транзакцией
+    public static final int MAX_BOOKINGS = 100;
+
+    @NotEmpty
+    @Size(max = MAX_BOOKINGS)
+    private List<@Valid @NotNull BookingItemRequestDto> bookings;
+}
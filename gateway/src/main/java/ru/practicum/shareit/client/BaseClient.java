@@ -1,124 +1,305 @@
 package ru.practicum.shareit.client;
 
+import org.apache.http.conn.EofSensorInputStream;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.enums.ClientEngine;
 
+import javax.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 
 public class BaseClient {
+    //Условные заголовки клиента передаются серверу без изменений
+    private static final List<String> CONDITIONAL_HEADERS = List.of(HttpHeaders.IF_NONE_MATCH,
+            HttpHeaders.IF_MODIFIED_SINCE);
+
+    //Из ответа сервера клиенту передаются только эти заголовки, служебные заголовки соединения
+    //и длину тела выставляет сам шлюз
+    private static final List<String> RESPONSE_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL, HttpHeaders.LOCATION, "X-Next-Cursor");
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
     protected final RestTemplate rest;
+    private final RestTemplate streamRest;
+    private final WebClient web;
+    private final ClientEngine engine;
+    private final RequestCoalescer requestCoalescer;
 
-    public BaseClient(RestTemplate rest) {
-        this.rest = rest;
+    public BaseClient(ServerClientFactory serverClientFactory, String apiPrefix) {
+        this.rest = serverClientFactory.restTemplate(apiPrefix);
+        this.streamRest = serverClientFactory.streamRestTemplate(apiPrefix);
+        this.web = serverClientFactory.webClient(apiPrefix);
+        this.engine = serverClientFactory.getEngine();
+        this.requestCoalescer = serverClientFactory.getRequestCoalescer();
     }
 
-    private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
-        if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
-        }
+    //Ответ шлюза собирается из статуса, нужных заголовков и байтов тела сервера без разбора JSON.
+    //Так же передаются 304 с ETag и ошибки 4xx и 5xx вместе с типом их тела.
+    private static ResponseEntity<byte[]> prepareGatewayResponse(int status, HttpHeaders serverHeaders,
+                                                                 @Nullable byte[] body) {
+        return ResponseEntity.status(status).headers(responseHeaders(serverHeaders)).body(body);
+    }
 
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
+    private static HttpHeaders responseHeaders(HttpHeaders serverHeaders) {
+        HttpHeaders headers = new HttpHeaders();
 
-        if (response.hasBody()) {
-            return responseBuilder.body(response.getBody());
-        }
+        for (String name : RESPONSE_HEADERS) {
+            List<String> values = serverHeaders.get(name);
 
-        return responseBuilder.build();
+            if (values != null) {
+                headers.addAll(name, values);
+            }
+        }
+        return headers;
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    protected Mono<ResponseEntity<byte[]>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, long userId) {
+    protected Mono<ResponseEntity<byte[]>> get(String path, long userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<byte[]>> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
     }
 
-    protected ResponseEntity<Object> get(String path, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<byte[]>> get(String path, @Nullable Map<String, Object> parameters) {
         return get(path, null, parameters);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+    //GET без пользователя через кэш ответов. Ключ должен включать все, от чего зависит ответ.
+    //Условные запросы клиента идут на сервер напрямую: их результат зависит от заголовков, а не только от ключа.
+    protected Mono<ResponseEntity<byte[]>> get(ResponseCache cache, String key, String path,
+                                               @Nullable Map<String, Object> parameters) {
+        if (hasConditionalHeaders()) {
+            return get(path, parameters);
+        }
+        return cache.get(key, () -> get(path, parameters));
+    }
+
+    protected <T> Mono<ResponseEntity<byte[]>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> post(String path, long userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String,
+    protected <T> Mono<ResponseEntity<byte[]>> post(String path, Long userId, @Nullable Map<String,
             Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> put(String path, long userId, T body) {
         return put(path, userId,
                 null, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, @Nullable Map<String,
+    protected <T> Mono<ResponseEntity<byte[]>> put(String path, long userId, @Nullable Map<String,
             Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, T body) {
         return patch(path,
                 null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId) {
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, long userId) {
         return patch(path, userId,
                 null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, long userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, @Nullable Map<String,
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, long userId, @Nullable Map<String,
             Object> parameters) {
         return patch(path, userId, parameters, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String,
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, Long userId, @Nullable Map<String,
             Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected Mono<ResponseEntity<byte[]>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, long userId) {
+    protected Mono<ResponseEntity<byte[]>> delete(String path, long userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<byte[]>> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId,
-                                                          @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+    //Поток событий сервера пересылается клиенту по мере поступления, каждая порция сразу сбрасывается в сокет
+    protected ResponseEntity<StreamingResponseBody> stream(String path, long userId) {
+        StreamingResponseBody body = output -> streamRest.execute(path, HttpMethod.GET, request -> {
+            request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+            request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+        }, response -> {
+            InputStream input = response.getBody();
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+                output.flush();
+            }
+            return null;
+        });
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(body);
+    }
 
-        ResponseEntity<Object> shareitServerResponse;
+    //Ответ сервера пересылается клиенту как есть: статус и заголовки сразу, тело - по мере чтения из соединения,
+    //без разбора JSON и без накопления в памяти. Тип ответа выбирает заголовок Accept клиента.
+    protected ResponseEntity<StreamingResponseBody> passThrough(String path, @Nullable Long userId,
+                                                                Map<String, ?> parameters) {
+        ClientHttpResponse response;
         try {
-            if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
+            ClientHttpRequest request = rest.getRequestFactory()
+                    .createRequest(rest.getUriTemplateHandler().expand(path, parameters), HttpMethod.GET);
+            request.getHeaders().putAll(defaultHeaders(userId));
+            forwardAccept(request.getHeaders());
+            response = request.execute();
+        } catch (IOException e) {
+            throw new ResourceAccessException("Сервер недоступен: " + e.getMessage(), e);
+        }
+        closeOnAsyncCompletion(response);
+        StreamingResponseBody body = output -> {
+            try (response) {
+                response.getBody().transferTo(output);
             }
+        };
+        try {
+            return ResponseEntity.status(response.getRawStatusCode())
+                    .headers(responseHeaders(response.getHeaders()))
+                    .body(body);
+        } catch (IOException e) {
+            response.close();
+            throw new ResourceAccessException("Сервер недоступен: " + e.getMessage(), e);
+        }
+    }
+
+    //Соединение пула занято, пока ответ сервера не закрыт. Передача тела может не начаться или оборваться:
+    //по тайм-ауту асинхронного запроса или при ошибке. Поэтому по завершении асинхронной обработки запроса клиента
+    //в любом ее исходе соединение обрывается: обычное закрытие дочитало бы тело, которое сервер может слать долго.
+    //После полной передачи тела соединение уже возвращено в пул, и обрыв ничего не делает.
+    private static void closeOnAsyncCompletion(ClientHttpResponse response) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+        if (attributes instanceof ServletRequestAttributes) {
+            WebAsyncUtils.getAsyncManager(((ServletRequestAttributes) attributes).getRequest())
+                    .registerCallableInterceptor(response, new CallableProcessingInterceptor() {
+                        @Override
+                        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task)
+                                throws IOException {
+                            InputStream body = response.getBody();
+
+                            if (body instanceof EofSensorInputStream) {
+                                ((EofSensorInputStream) body).abortConnection();
+                            }
+                            response.close();
+                        }
+                    });
+        }
+    }
+
+    //Заголовки собираются в потоке запроса клиента, ответ сервера приходит в одном из движков.
+    //В блокирующем режиме обмен выполняется при подписке, то есть тоже в потоке запроса.
+    //Одновременные одинаковые GET-запросы - тот же адрес, пользователь и условные заголовки - уходят на сервер
+    //одним запросом.
+    private <T> Mono<ResponseEntity<byte[]>> makeAndSendRequest(HttpMethod method, String path, Long userId,
+                                                                @Nullable Map<String, Object> parameters,
+                                                                @Nullable T body) {
+        HttpHeaders headers = defaultHeaders(userId);
+        URI uri = parameters != null ? rest.getUriTemplateHandler().expand(path, parameters)
+                : rest.getUriTemplateHandler().expand(path);
+
+        if (method == HttpMethod.GET) {
+            return requestCoalescer.execute(coalescingKey(uri, headers),
+                    () -> exchange(method, uri, headers, body));
+        }
+        return exchange(method, uri, headers, body);
+    }
+
+    private <T> Mono<ResponseEntity<byte[]>> exchange(HttpMethod method, URI uri, HttpHeaders headers,
+                                                      @Nullable T body) {
+        if (engine == ClientEngine.REACTIVE) {
+            return exchangeReactive(method, uri, headers, body);
+        }
+        return Mono.fromCallable(() -> exchangeBlocking(method, uri, headers, body));
+    }
+
+    private <T> ResponseEntity<byte[]> exchangeBlocking(HttpMethod method, URI uri, HttpHeaders headers,
+                                                        @Nullable T body) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
+
+        ResponseEntity<byte[]> shareitServerResponse;
+        try {
+            shareitServerResponse = rest.exchange(uri, method, requestEntity, byte[].class);
         } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            HttpHeaders errorHeaders = e.getResponseHeaders();
+
+            return prepareGatewayResponse(e.getRawStatusCode(), errorHeaders != null ? errorHeaders
+                    : HttpHeaders.EMPTY, e.getResponseBodyAsByteArray());
         }
-        return prepareGatewayResponse(shareitServerResponse);
+        return prepareGatewayResponse(shareitServerResponse.getStatusCodeValue(),
+                shareitServerResponse.getHeaders(), shareitServerResponse.getBody());
+    }
+
+    //Тело читается целиком в массив байтов, пустое тело остается пустым, как в блокирующем режиме
+    private <T> Mono<ResponseEntity<byte[]>> exchangeReactive(HttpMethod method, URI uri, HttpHeaders headers,
+                                                              @Nullable T body) {
+        WebClient.RequestBodySpec request = web.method(method)
+                .uri(uri)
+                .headers(requestHeaders -> requestHeaders.addAll(headers));
+
+        return (body != null ? request.bodyValue(body) : request)
+                .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(responseBody -> prepareGatewayResponse(response.rawStatusCode(),
+                                response.headers().asHttpHeaders(), responseBody.orElse(null))));
+    }
+
+    //Ответ сервера определяют адрес, пользователь и условные заголовки, остальные заголовки запроса постоянны
+    private static String coalescingKey(URI uri, HttpHeaders headers) {
+        StringBuilder key = new StringBuilder(uri.toString())
+                .append('|').append(headers.getFirst("X-Sharer-User-Id"));
+
+        for (String name : CONDITIONAL_HEADERS) {
+            key.append('|').append(headers.getFirst(name));
+        }
+        return key.toString();
     }
 
     private HttpHeaders defaultHeaders(Long userId) {
@@ -128,6 +309,42 @@ public class BaseClient {
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+        if (attributes instanceof ServletRequestAttributes) {
+            HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+
+            for (String name : CONDITIONAL_HEADERS) {
+                String value = request.getHeader(name);
+
+                if (value != null) {
+                    headers.set(name, value);
+                }
+            }
+        }
         return headers;
     }
+
+    private static boolean hasConditionalHeaders() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+        if (attributes instanceof ServletRequestAttributes) {
+            HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+
+            return CONDITIONAL_HEADERS.stream().anyMatch(name -> request.getHeader(name) != null);
+        }
+        return false;
+    }
+
+    private static void forwardAccept(HttpHeaders headers) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+        if (attributes instanceof ServletRequestAttributes) {
+            String accept = ((ServletRequestAttributes) attributes).getRequest().getHeader(HttpHeaders.ACCEPT);
+
+            if (accept != null) {
+                headers.set(HttpHeaders.ACCEPT, accept);
+            }
+        }
+    }
 }
\ No newline at end of file
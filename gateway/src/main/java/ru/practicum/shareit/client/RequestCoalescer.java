@@ -0,0 +1,71 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+//Объединение одинаковых GET-запросов к серверу, которые выполняются одновременно. Первый запрос по ключу
+//уходит на сервер, остальные ждут его ответ и получают тот же ответ. Ключ освобождается, как только ответ получен,
+//поэтому следующий запрос снова идет на сервер. Каждый запрос к серверу ограничен timeout: при зависании сервера
+//все присоединившиеся получают TimeoutException, а ключ освобождается. По умолчанию timeout равен read-timeout пула,
+//чтобы объединение не обрывало медленные ответы, которые пул еще ждет. В блокирующем режиме первый запрос
+//выполняется в потоке клиента, поэтому тот же timeout ставится и на чтение ответа на GET (см. ServerClientFactory).
+//Метрики: gateway.coalescing.requests (leader - ушел на сервер, joined - получил чужой ответ)
+//и gateway.coalescing.in-flight с числом ключей, по которым запрос к серверу еще выполняется.
+@Component
+public class RequestCoalescer {
+    private final boolean enabled;
+    private final Duration timeout;
+    private final Map<String, Mono<ResponseEntity<byte[]>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter joined;
+
+    public RequestCoalescer(MeterRegistry meterRegistry,
+                            @Value("${shareit-gateway.coalescing.enabled:true}") boolean enabled,
+                            @Value("${shareit-gateway.coalescing.timeout:${shareit-gateway.pool.read-timeout:30s}}")
+                            Duration timeout) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.leaders = Counter.builder("gateway.coalescing.requests").tag("result", "leader")
+                .register(meterRegistry);
+        this.joined = Counter.builder("gateway.coalescing.requests").tag("result", "joined")
+                .register(meterRegistry);
+        Gauge.builder("gateway.coalescing.in-flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    //Запрос к серверу собирается только для первого запроса по ключу и в потоке этого запроса.
+    //Ответ разделяется между всеми ждущими: отказ клиента от ответа не отменяет запрос к серверу для остальных.
+    public Mono<ResponseEntity<byte[]>> execute(String key, Supplier<Mono<ResponseEntity<byte[]>>> upstream) {
+        if (!enabled) {
+            return upstream.get();
+        }
+        boolean[] leader = {false};
+        Mono<ResponseEntity<byte[]>> flight = inFlight.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            return upstream.get()
+                    .timeout(timeout)
+                    .doFinally(signal -> inFlight.remove(k))
+                    .cache();
+        });
+
+        (leader[0] ? leaders : joined).increment();
+        return flight;
+    }
+}
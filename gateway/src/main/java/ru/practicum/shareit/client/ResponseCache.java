@@ -0,0 +1,188 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+//Кэш ответов шлюза на GET-запросы, ответ которых не зависит от пользователя. Ключ - нормализованный запрос.
+//Ответ моложе ttl отдается без обращения к серверу. Ответ моложе ttl + stale-while-revalidate отдается сразу,
+//а сервер в фоне запрашивается заново, не больше одного обновления на ключ. Если сервер недоступен или ответил 5xx,
+//клиент получает последний удачный ответ не старше ttl + stale-if-error.
+//Кэшируются только ответы 200, объем ограничен бюджетом в байтах, вытесняются давно не читавшиеся записи.
+//Метрики: cache.gets (hit, miss), cache.stale (revalidate, error), cache.evictions, cache.size и cache.bytes.
+@Slf4j
+public class ResponseCache {
+    //Примерные накладные расходы записи сверх тела: узел карты, ключ, запись, ответ и его заголовки
+    static final int ENTRY_OVERHEAD = 512;
+
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final long staleWhileRevalidateNanos;
+    private final long staleIfErrorNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleRevalidations;
+    private final Counter staleErrors;
+    private final Counter evictions;
+    private long bytes;
+    //Растет при каждой инвалидации: ответ, запрошенный до нее, в кэш не попадает
+    private long invalidations;
+
+    public ResponseCache(String name, MeterRegistry meterRegistry, long maxBytes, Duration ttl,
+                         Duration staleWhileRevalidate, Duration staleIfError) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+        this.staleWhileRevalidateNanos = ttlNanos + staleWhileRevalidate.toNanos();
+        this.staleIfErrorNanos = ttlNanos + Math.max(staleWhileRevalidate.toNanos(), staleIfError.toNanos());
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        this.staleRevalidations = Counter.builder("cache.stale").tag("cache", name).tag("reason", "revalidate")
+                .register(meterRegistry);
+        this.staleErrors = Counter.builder("cache.stale").tag("cache", name).tag("reason", "error")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", name).register(meterRegistry);
+        Gauge.builder("cache.size", this, ResponseCache::size).tag("cache", name).register(meterRegistry);
+        Gauge.builder("cache.bytes", this, ResponseCache::bytes).tag("cache", name).register(meterRegistry);
+    }
+
+    //Ответ по ключу из кэша или от сервера. Обращение к серверу собирается в потоке запроса клиента,
+    //так как заголовки запроса к серверу берутся из него.
+    public Mono<ResponseEntity<byte[]>> get(String key, Supplier<Mono<ResponseEntity<byte[]>>> upstream) {
+        long now = System.nanoTime();
+        Entry entry;
+        boolean revalidate = false;
+
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.age(now) > staleIfErrorNanos) {
+                remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry != null && entry.age(now) > ttlNanos && entry.age(now) <= staleWhileRevalidateNanos
+                    && !entry.revalidating) {
+                entry.revalidating = true;
+                revalidate = true;
+            }
+        }
+        if (entry != null && entry.age(now) <= staleWhileRevalidateNanos) {
+            hits.increment();
+            if (entry.age(now) > ttlNanos) {
+                staleRevalidations.increment();
+            }
+            if (revalidate) {
+                revalidate(key, entry, upstream.get());
+            }
+            return Mono.just(entry.response);
+        }
+        misses.increment();
+
+        Entry fallback = entry;
+        long ticket = ticket();
+
+        return upstream.get()
+                .doOnNext(response -> put(key, response, ticket))
+                .map(response -> fallback != null && response.getStatusCodeValue() >= 500
+                        ? serveStale(fallback) : response)
+                .onErrorResume(e -> fallback != null ? Mono.just(serveStale(fallback)) : Mono.error(e));
+    }
+
+    //Все записи устарели, например после изменения данных через шлюз
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private synchronized long ticket() {
+        return invalidations;
+    }
+
+    //Обновление выполняется в фоне: в блокирующем режиме подписка на запрос к серверу заняла бы поток клиента
+    private void revalidate(String key, Entry entry, Mono<ResponseEntity<byte[]>> request) {
+        long ticket = ticket();
+
+        request.subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signal -> {
+                    synchronized (this) {
+                        entry.revalidating = false;
+                    }
+                })
+                .subscribe(response -> put(key, response, ticket),
+                        e -> log.debug("Не удалось обновить ответ в кэше по ключу {}: {}", key, e.getMessage()));
+    }
+
+    private ResponseEntity<byte[]> serveStale(Entry entry) {
+        staleErrors.increment();
+        return entry.response;
+    }
+
+    private synchronized void put(String key, ResponseEntity<byte[]> response, long ticket) {
+        if (response.getStatusCodeValue() != HttpStatus.OK.value() || !response.hasBody()) {
+            return;
+        }
+        Entry entry = new Entry(response, System.nanoTime());
+
+        if (ticket != invalidations || entry.weight() > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, entry);
+        bytes += entry.weight();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().weight();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+
+    //Ответ в записи не изменяется и отдается всем клиентам один и тот же
+    private static final class Entry {
+        private final ResponseEntity<byte[]> response;
+        private final long storedAt;
+        private boolean revalidating;
+
+        private Entry(ResponseEntity<byte[]> response, long storedAt) {
+            this.response = response;
+            this.storedAt = storedAt;
+        }
+
+        private long age(long now) {
+            return now - storedAt;
+        }
+
+        private long weight() {
+            return response.getBody().length + ENTRY_OVERHEAD;
+        }
+    }
+}
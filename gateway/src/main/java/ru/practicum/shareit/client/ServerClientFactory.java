@@ -0,0 +1,169 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import ru.practicum.shareit.client.enums.ClientEngine;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+//Клиенты HTTP к серверу для всех клиентов шлюза. Движок выбирается настройкой shareit-gateway.engine.
+//Все клиенты делят один пул соединений Apache HttpClient, в режиме reactive - еще и один пул Reactor Netty.
+//Оба пула настраиваются общими параметрами shareit-gateway.pool.*: соединений не больше max-total,
+//свободное соединение ждут не дольше acquire-timeout, простаивающие дольше idle-timeout закрываются.
+//В пуле Reactor Netty ожидающих соединения запросов не больше max-pending, остальные сразу получают ошибку.
+//Потоки событий держат соединение, пока открыты, поэтому у них отдельный небольшой пул без времени чтения
+//на stream-max-connections соединений: открытые потоки не занимают соединения обычных запросов.
+@Component
+public class ServerClientFactory {
+    private static final String POOL_NAME = "shareit-server";
+    private static final String STREAM_POOL_NAME = "shareit-server-stream";
+
+    private final String serverUrl;
+    private final ClientEngine engine;
+    private final RequestCoalescer requestCoalescer;
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final WebClient.Builder webClientBuilder;
+    private final CloseableHttpClient httpClient;
+    private final CloseableHttpClient streamHttpClient;
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
+    private final HttpComponentsClientHttpRequestFactory streamRequestFactory;
+    private final ConnectionProvider connectionProvider;
+    private final ReactorClientHttpConnector connector;
+
+    public ServerClientFactory(@Value("${shareit-server.url}") String serverUrl,
+                               @Value("${shareit-gateway.engine:blocking}") ClientEngine engine,
+                               @Value("${shareit-gateway.pool.max-total:200}") int maxTotal,
+                               @Value("${shareit-gateway.pool.max-per-route:200}") int maxPerRoute,
+                               @Value("${shareit-gateway.pool.max-pending:1000}") int maxPending,
+                               @Value("${shareit-gateway.pool.connect-timeout:2s}") Duration connectTimeout,
+                               @Value("${shareit-gateway.pool.acquire-timeout:5s}") Duration acquireTimeout,
+                               @Value("${shareit-gateway.pool.read-timeout:30s}") Duration readTimeout,
+                               @Value("${shareit-gateway.pool.idle-timeout:15s}") Duration idleTimeout,
+                               @Value("${shareit-gateway.pool.stream-max-connections:20}") int streamMaxConnections,
+                               RestTemplateBuilder restTemplateBuilder, WebClient.Builder webClientBuilder,
+                               MeterRegistry meterRegistry, RequestCoalescer requestCoalescer) {
+        this.serverUrl = serverUrl;
+        this.engine = engine;
+        this.requestCoalescer = requestCoalescer;
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.webClientBuilder = webClientBuilder;
+        this.httpClient = httpClient(new ServerConnectionManager(POOL_NAME, maxTotal, maxPerRoute, meterRegistry),
+                connectTimeout, acquireTimeout, readTimeout, idleTimeout);
+        //Поток событий может молчать сколько угодно, поэтому время чтения для него не ограничено
+        this.streamHttpClient = httpClient(new ServerConnectionManager(STREAM_POOL_NAME, streamMaxConnections,
+                streamMaxConnections, meterRegistry), connectTimeout, acquireTimeout, Duration.ZERO, idleTimeout);
+        this.requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        //Объединенный GET в блокирующем режиме ждет ответа в потоке первого клиента. Ждущие получают
+        //TimeoutException через coalescing.timeout, и чтение ответа ограничено тем же временем, чтобы поток
+        //первого клиента не оставался занят до read-timeout пула
+        if (requestCoalescer.isEnabled()) {
+            Duration getReadTimeout = requestCoalescer.getTimeout().compareTo(readTimeout) < 0
+                    ? requestCoalescer.getTimeout() : readTimeout;
+            RequestConfig getConfig = requestConfig(connectTimeout, acquireTimeout, getReadTimeout);
+
+            this.requestFactory.setHttpContextFactory((method, uri) -> method == HttpMethod.GET
+                    ? requestContext(getConfig) : null);
+        }
+        this.streamRequestFactory = new HttpComponentsClientHttpRequestFactory(streamHttpClient);
+        //Метрики reactor.netty.connection.provider.* попадают в глобальный реестр, который Spring Boot
+        //связывает со своим
+        this.connectionProvider = ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(maxTotal)
+                .pendingAcquireMaxCount(maxPending)
+                .pendingAcquireTimeout(acquireTimeout)
+                .maxIdleTime(idleTimeout)
+                .evictInBackground(idleTimeout)
+                .metrics(true)
+                .build();
+        this.connector = new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout));
+    }
+
+    public ClientEngine getEngine() {
+        return engine;
+    }
+
+    //Один на все клиенты шлюза
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    public RestTemplate restTemplate(String apiPrefix) {
+        return restTemplate(apiPrefix, requestFactory);
+    }
+
+    //Шаблон для длинных потоков событий на отдельном пуле без ограничения времени чтения
+    public RestTemplate streamRestTemplate(String apiPrefix) {
+        return restTemplate(apiPrefix, streamRequestFactory);
+    }
+
+    //Шаблоны путей раскрываются так же, как у RestTemplate
+    public WebClient webClient(String apiPrefix) {
+        return webClientBuilder.clone()
+                .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + apiPrefix))
+                .clientConnector(connector)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        connectionProvider.dispose();
+        httpClient.close();
+        streamHttpClient.close();
+    }
+
+    private static CloseableHttpClient httpClient(ServerConnectionManager connectionManager, Duration connectTimeout,
+                                                  Duration acquireTimeout, Duration readTimeout,
+                                                  Duration idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig(connectTimeout, acquireTimeout, readTimeout))
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static RequestConfig requestConfig(Duration connectTimeout, Duration acquireTimeout,
+                                               Duration readTimeout) {
+        return RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setConnectionRequestTimeout((int) acquireTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .build();
+    }
+
+    //Настройки из контекста запроса заменяют настройки клиента целиком
+    private static HttpContext requestContext(RequestConfig config) {
+        HttpClientContext context = HttpClientContext.create();
+
+        context.setRequestConfig(config);
+        return context;
+    }
+
+    private RestTemplate restTemplate(String apiPrefix, HttpComponentsClientHttpRequestFactory factory) {
+        return restTemplateBuilder
+                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + apiPrefix))
+                .requestFactory(() -> factory)
+                .build();
+    }
+}
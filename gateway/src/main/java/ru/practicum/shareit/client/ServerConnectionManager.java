@@ -0,0 +1,54 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+//Пул соединений Apache HttpClient с сервером. Состояние пула публикуется стандартными метриками
+//httpcomponents.httpclient.pool.* с тегом httpclient=poolName: занятые и свободные соединения, ожидающие запросы
+//и лимиты. Время ожидания свободного соединения записывается в httpcomponents.httpclient.pool.wait.
+class ServerConnectionManager extends PoolingHttpClientConnectionManager {
+    private final Timer leaseWait;
+
+    ServerConnectionManager(String poolName, int maxTotal, int maxPerRoute, MeterRegistry meterRegistry) {
+        setMaxTotal(maxTotal);
+        setDefaultMaxPerRoute(maxPerRoute);
+        new PoolingHttpClientConnectionManagerMetricsBinder(this, poolName).bindTo(meterRegistry);
+        this.leaseWait = Timer.builder("httpcomponents.httpclient.pool.wait")
+                .description("Время ожидания свободного соединения в пуле")
+                .tag("httpclient", poolName)
+                .register(meterRegistry);
+    }
+
+    //Ожидание учитывается и тогда, когда соединение так и не было получено
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = super.requestConnection(route, state);
+
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, timeUnit);
+                } finally {
+                    leaseWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+}
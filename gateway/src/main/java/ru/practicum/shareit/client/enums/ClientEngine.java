@@ -0,0 +1,9 @@
+package ru.practicum.shareit.client.enums;
+
+//Способ обращения шлюза к серверу
+public enum ClientEngine {
+    //RestTemplate: поток Tomcat ждет ответа сервера
+    BLOCKING,
+    //WebClient на Reactor Netty: поток Tomcat освобождается до ответа сервера
+    REACTIVE
+}
@@ -2,11 +2,16 @@ package ru.practicum.shareit.handler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.client.ResourceAccessException;
 import ru.practicum.shareit.exception.*;
 
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+
 @Slf4j
 @RestControllerAdvice
 public class ExHandler {
@@ -23,4 +28,22 @@ public class ExHandler {
         log.error("Storage error - incorrect request" + "\n" + e.getMessage());
         return new ErrorResponse(e.getMessage(), "incorrect request");
     }
-}
\ No newline at end of file
+
+    //Сервер не ответил за время shareit-gateway.coalescing.timeout
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public ErrorResponse handleTimeout(TimeoutException e) {
+        log.error("Server timeout" + "\n" + e.getMessage());
+        return new ErrorResponse(e.getMessage(), "server timeout");
+    }
+
+    //Сервер недоступен или оборвал соединение: 502, а если не ответил за тайм-аут чтения пула - 504
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleServerUnavailable(ResourceAccessException e) {
+        boolean timeout = e.getCause() instanceof SocketTimeoutException;
+
+        log.error("Server unavailable" + "\n" + e.getMessage());
+        return ResponseEntity.status(timeout ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY)
+                .body(new ErrorResponse(e.getMessage(), timeout ? "server timeout" : "server unavailable"));
+    }
+}
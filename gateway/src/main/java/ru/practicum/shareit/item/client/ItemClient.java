@@ -1,55 +1,76 @@
 package ru.practicum.shareit.item.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerClientFactory;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.Duration;
+import java.util.Locale;
 import java.util.Map;
 
 @Service
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
+    private static final String SEARCH_CACHE_NAME = "item-search";
+
+    private final ResponseCache searchCache;
 
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        super(builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                .build());
+    public ItemClient(ServerClientFactory serverClientFactory, MeterRegistry meterRegistry,
+                      @Value("${shareit-gateway.item-search-cache.max-bytes:16MB}") DataSize maxBytes,
+                      @Value("${shareit-gateway.item-search-cache.ttl:5s}") Duration ttl,
+                      @Value("${shareit-gateway.item-search-cache.stale-while-revalidate:30s}")
+                      Duration staleWhileRevalidate,
+                      @Value("${shareit-gateway.item-search-cache.stale-if-error:5m}") Duration staleIfError) {
+        super(serverClientFactory, API_PREFIX);
+        this.searchCache = new ResponseCache(SEARCH_CACHE_NAME, meterRegistry, maxBytes.toBytes(), ttl,
+                staleWhileRevalidate, staleIfError);
     }
 
-    public ResponseEntity<Object> create(long userId, ItemDto itemDto) {
-        return post("", userId, itemDto);
+    //Новая или измененная через шлюз вещь сразу видна в поиске
+    public Mono<ResponseEntity<byte[]>> create(long userId, ItemDto itemDto) {
+        return post("", userId, itemDto).doOnNext(this::invalidateSearch);
     }
 
-    public ResponseEntity<Object> update(long userId, long itemId, ItemDto itemDto) {
-        return patch("/" + itemId, userId, itemDto);
+    public Mono<ResponseEntity<byte[]>> update(long userId, long itemId, ItemDto itemDto) {
+        return patch("/" + itemId, userId, itemDto).doOnNext(this::invalidateSearch);
     }
 
-    public ResponseEntity<Object> getItem(long itemId, long userId) {
+    public Mono<ResponseEntity<byte[]>> getItem(long itemId, long userId) {
         return get("/" + itemId, userId);
     }
 
-    public ResponseEntity<Object> getAllItemsByUser(long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<byte[]>> getAllItemsByUser(long userId, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of("from", from, "size", size);
 
         return get("?from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> search(String text, Integer from, Integer size) {
+    //Текст уходит на сервер как есть. Регистр на результат не влияет ни в одном движке поиска сервера,
+    //поэтому запросы, отличающиеся только регистром, делят одну запись кэша.
+    public Mono<ResponseEntity<byte[]>> search(String text, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of("text", text, "from", from, "size", size);
 
-        return get("/search?text={text}&from={from}&size={size}", parameters);
+        return get(searchCache, from + ":" + size + ":" + text.toLowerCase(Locale.ROOT),
+                "/search?text={text}&from={from}&size={size}", parameters);
     }
 
-    public ResponseEntity<Object> createComment(long userId, long itemId, CommentDto commentDto) {
+    public Mono<ResponseEntity<byte[]>> createComment(long userId, long itemId, CommentDto commentDto) {
         return post("/" + itemId + "/comment", userId, commentDto);
     }
-}
\ No newline at end of file
+
+    private void invalidateSearch(ResponseEntity<byte[]> response) {
+        if (response.getStatusCode().is2xxSuccessful()) {
+            searchCache.invalidateAll();
+        }
+    }
+}
@@ -2,11 +2,12 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.item.client.ItemClient;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -15,7 +16,7 @@ import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
 
 @Controller
 @Validated
@@ -23,31 +24,34 @@ import java.util.Collections;
 @RequestMapping("/items")
 @RequiredArgsConstructor
 public class ItemController {
+    //Пустой результат поиска отдается готовым JSON без обращения к серверу
+    private static final byte[] EMPTY_LIST = "[]".getBytes(StandardCharsets.UTF_8);
 
     private final ItemClient itemClient;
 
     @PostMapping
-    public ResponseEntity<Object> create(@RequestHeader("X-Sharer-User-Id") long userId,
-                                         @Valid @RequestBody ItemDto itemDto) {
+    public Mono<ResponseEntity<byte[]>> create(@RequestHeader("X-Sharer-User-Id") long userId,
+                                               @Valid @RequestBody ItemDto itemDto) {
         log.info("Создана вещь с id = {} у пользователя с id = {}", itemDto.getId(), userId);
         return itemClient.create(userId, itemDto);
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<Object> update(@RequestHeader("X-Sharer-User-Id") long userId, @PathVariable long id,
-                                         @RequestBody ItemDto itemDto) {
+    public Mono<ResponseEntity<byte[]>> update(@RequestHeader("X-Sharer-User-Id") long userId, @PathVariable long id,
+                                               @RequestBody ItemDto itemDto) {
         log.info("Обновлена вещь с id = {}", id);
         return itemClient.update(userId, id, itemDto);
     }
 
     @GetMapping("/{itemId}")
-    public ResponseEntity<Object> getItem(@PathVariable long itemId, @RequestHeader("X-Sharer-User-Id") long userId) {
+    public Mono<ResponseEntity<byte[]>> getItem(@PathVariable long itemId,
+                                                @RequestHeader("X-Sharer-User-Id") long userId) {
         log.info("Получена вещь с id = {}", itemId);
         return itemClient.getItem(itemId, userId);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllItemsByUser(
+    public Mono<ResponseEntity<byte[]>> getAllItemsByUser(
             @RequestHeader("X-Sharer-User-Id") long userId,
             @PositiveOrZero @RequestParam(defaultValue = "0") int from,
             @Positive @RequestParam(defaultValue = "10") int size) {
@@ -55,21 +59,21 @@ public class ItemController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Object> search(@RequestParam String text,
-                                         @RequestParam(defaultValue = "0") @Min(0) int from,
-                                         @RequestParam(defaultValue = "20") @Positive int size) {
+    public Mono<ResponseEntity<byte[]>> search(@RequestParam String text,
+                                               @RequestParam(defaultValue = "0") @Min(0) int from,
+                                               @RequestParam(defaultValue = "20") @Positive int size) {
         log.info("Получение всех вещей пользователя с id = {}", text);
         if (text == null || text.isBlank()) {
-            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.OK);
+            return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(EMPTY_LIST));
         }
         return itemClient.search(text, from, size);
     }
 
 
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> createComment(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                @Valid @RequestBody CommentDto commentDto,
-                                                @PathVariable long itemId) {
+    public Mono<ResponseEntity<byte[]>> createComment(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                      @Valid @RequestBody CommentDto commentDto,
+                                                      @PathVariable long itemId) {
         log.info("Пользователь с id = {} создал комментарий к вещи с id = {}", userId, itemId);
         return itemClient.createComment(userId, itemId, commentDto);
     }
@@ -1,13 +1,12 @@
 package ru.practicum.shareit.request.client;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ServerClientFactory;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.util.Map;
@@ -17,27 +16,32 @@ public class ItemRequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
     @Autowired
-    public ItemRequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        super(builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                .build());
+    public ItemRequestClient(ServerClientFactory serverClientFactory) {
+        super(serverClientFactory, API_PREFIX);
     }
 
-    public ResponseEntity<Object> create(long userId, ItemRequestDto itemRequestDto) {
+    public Mono<ResponseEntity<byte[]>> create(long userId, ItemRequestDto itemRequestDto) {
         return post("", userId, itemRequestDto);
     }
 
-    public ResponseEntity<Object> getAll(long userId) {
+    public Mono<ResponseEntity<byte[]>> getAll(long userId) {
         return get("", userId);
     }
 
-    public ResponseEntity<Object> getAllWithPageable(long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<byte[]>> getAllWithPageable(long userId, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of("from", from, "size", size);
         return get("/all?from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getItemRequest(long userId, long requestId) {
+    public Mono<ResponseEntity<byte[]>> getItemRequest(long userId, long requestId) {
         return get("/" + requestId, userId);
     }
+
+    public Mono<ResponseEntity<byte[]>> getSuggestions(long userId, long requestId) {
+        return get("/" + requestId + "/suggestions", userId);
+    }
+
+    public ResponseEntity<StreamingResponseBody> subscribe(long userId) {
+        return stream("/events", userId);
+    }
 }
\ No newline at end of file
@@ -2,10 +2,13 @@ package ru.practicum.shareit.request.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.request.client.ItemRequestClient;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
@@ -22,8 +25,8 @@ public class ItemRequestController {
     private final ItemRequestClient itemRequestClient;
 
     @PostMapping
-    public ResponseEntity<Object> create(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                         @Valid @RequestBody ItemRequestDto itemRequestDto) {
+    public Mono<ResponseEntity<byte[]>> create(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                               @Valid @RequestBody ItemRequestDto itemRequestDto) {
         log.info("Получен запрос к эндпоинту: '{} {}', Запрос на вещь: Описание: {}",
                 "POST", "/requests",
                 itemRequestDto.getDescription());
@@ -31,20 +34,32 @@ public class ItemRequestController {
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAll(@RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> getAll(@RequestHeader("X-Sharer-User-Id") Long userId) {
         return itemRequestClient.getAll(userId);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Object> getAllWithPageable(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                                     @RequestParam(defaultValue = "0") @Min(0) Integer from,
-                                                     @RequestParam(defaultValue = "20") @Positive Integer size) {
+    public Mono<ResponseEntity<byte[]>> getAllWithPageable(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                           @RequestParam(defaultValue = "0") @Min(0) Integer from,
+                                                           @RequestParam(defaultValue = "20") @Positive Integer size) {
         return itemRequestClient.getAllWithPageable(userId, from, size);
     }
 
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> subscribe(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Подписка на события запросов пользователя id={}", userId);
+        return itemRequestClient.subscribe(userId);
+    }
+
+    @GetMapping("/{requestId}/suggestions")
+    public Mono<ResponseEntity<byte[]>> getSuggestions(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                       @PathVariable Long requestId) {
+        return itemRequestClient.getSuggestions(userId, requestId);
+    }
+
     @GetMapping("/{requestId}")
-    public ResponseEntity<Object> getItemRequest(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                                 @PathVariable Long requestId) {
+    public Mono<ResponseEntity<byte[]>> getItemRequest(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                       @PathVariable Long requestId) {
         return itemRequestClient.getItemRequest(userId, requestId);
     }
 }
\ No newline at end of file
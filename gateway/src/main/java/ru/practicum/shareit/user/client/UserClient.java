@@ -1,44 +1,51 @@
 package ru.practicum.shareit.user.client;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ServerClientFactory;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.util.Map;
+
 @Service
 public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
 
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        super(builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                .build());
+    public UserClient(ServerClientFactory serverClientFactory) {
+        super(serverClientFactory, API_PREFIX);
     }
 
-    public ResponseEntity<Object> create(UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> create(UserDto userDto) {
         return post("", userDto);
     }
 
-    public ResponseEntity<Object> update(long userId, UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> update(long userId, UserDto userDto) {
         return patch("/" + userId, userDto);
     }
 
-    public ResponseEntity<Object> delete(long userId) {
+    public Mono<ResponseEntity<byte[]>> delete(long userId) {
         return delete("/" + userId);
     }
 
-    public ResponseEntity<Object> getUser(long userId) {
+    public Mono<ResponseEntity<byte[]>> getUser(long userId) {
         return get("/" + userId);
     }
 
-    public ResponseEntity<Object> getAll() {
-        return get("");
+    //Все пользователи потоком с сервера, тело через шлюз не буферизуется
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        return passThrough("", null, Map.of());
+    }
+
+    //Страница пользователей после курсора, заголовок со следующим курсором передается клиенту
+    public ResponseEntity<StreamingResponseBody> getPage(Long after, int size) {
+        if (after == null) {
+            return passThrough("?size={size}", null, Map.of("size", size));
+        }
+        return passThrough("?after={after}&size={size}", null, Map.of("after", after, "size", size));
     }
 }
\ No newline at end of file
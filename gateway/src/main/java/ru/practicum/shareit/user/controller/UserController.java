@@ -6,12 +6,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.user.client.UserClient;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
 
 @Slf4j
 @Controller
@@ -22,31 +25,40 @@ public class UserController {
     private final UserClient userClient;
 
     @PostMapping
-    public ResponseEntity<Object> create(@Valid @RequestBody UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> create(@Valid @RequestBody UserDto userDto) {
         log.info("Создан пользователь с id = {}", userDto.getId());
         return userClient.create(userDto);
     }
 
     @PatchMapping("/{userId}")
-    public ResponseEntity<Object> update(@Min(1) @NotNull @PathVariable Long userId, @RequestBody UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> update(@Min(1) @NotNull @PathVariable Long userId,
+                                               @RequestBody UserDto userDto) {
         log.info("Обновлен пользователь с id = {}", userId);
         return userClient.update(userId, userDto);
     }
 
     @DeleteMapping("/{userId}")
-    public ResponseEntity<Object> delete(@Min(1) @NotNull @PathVariable Long userId) {
+    public Mono<ResponseEntity<byte[]>> delete(@Min(1) @NotNull @PathVariable Long userId) {
         log.info("Удален пользователь с id = {}", userId);
         return userClient.delete(userId);
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<Object> getUser(@Min(1) @NotNull @PathVariable Long userId) {
+    public Mono<ResponseEntity<byte[]>> getUser(@Min(1) @NotNull @PathVariable Long userId) {
         log.info("Получен пользователь с id = {}", userId);
         return userClient.getUser(userId);
     }
 
+    //Страница пользователей после курсора after
+    @GetMapping(params = "size")
+    public ResponseEntity<StreamingResponseBody> getPage(@RequestParam(required = false) @Positive Long after,
+                                                         @RequestParam @Positive int size) {
+        return userClient.getPage(after, size);
+    }
+
+    //Все пользователи: массив JSON или application/x-ndjson, тело пересылается по мере получения от сервера
     @GetMapping
-    public ResponseEntity<Object> getAll() {
+    public ResponseEntity<StreamingResponseBody> getAll() {
         return userClient.getAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package ru.practicum.shareit.clientTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import ru.practicum.shareit.client.RequestCoalescer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestCoalescerTest {
+    private static final String KEY = "/items/1";
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void beforeEach() {
+        coalescer = coalescer(Duration.ofMinutes(1));
+        upstreamCalls = new AtomicInteger();
+    }
+
+    private RequestCoalescer coalescer(Duration timeout) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new RequestCoalescer(meterRegistry, true, timeout);
+    }
+
+    private Mono<ResponseEntity<byte[]>> execute(Mono<ResponseEntity<byte[]>> upstream) {
+        return coalescer.execute(KEY, () -> {
+            upstreamCalls.incrementAndGet();
+            return upstream;
+        });
+    }
+
+    private static ResponseEntity<byte[]> ok(String body) {
+        return ResponseEntity.ok(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("gateway.coalescing.in-flight").gauge().value();
+    }
+
+    //Ключ освобождается в doFinally, который может выполниться уже после ответа ждущим
+    private void awaitReleased() throws InterruptedException {
+        for (int i = 0; i < 500 && inFlight() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, inFlight(), "Ключ не освобожден");
+    }
+
+    //Два одновременных запроса получают ответ одного запроса к серверу
+    @Test
+    void shareUpstreamCall() {
+        Sinks.One<ResponseEntity<byte[]>> server = Sinks.one();
+        AtomicReference<ResponseEntity<byte[]>> first = new AtomicReference<>();
+        AtomicReference<ResponseEntity<byte[]>> second = new AtomicReference<>();
+
+        execute(server.asMono()).subscribe(first::set);
+        execute(server.asMono()).subscribe(second::set);
+
+        assertEquals(1, inFlight(), "Запрос к серверу не учтен");
+
+        server.tryEmitValue(ok("item"));
+
+        assertEquals(1, upstreamCalls.get(), "Запрос к серверу не объединен");
+        assertSame(first.get(), second.get(), "Ждущие получили разные ответы");
+        assertEquals(1, meterRegistry.get("gateway.coalescing.requests").tag("result", "leader").counter().count(),
+                "Первый запрос не учтен");
+        assertEquals(1, meterRegistry.get("gateway.coalescing.requests").tag("result", "joined").counter().count(),
+                "Присоединившийся запрос не учтен");
+    }
+
+    //После ответа следующий запрос снова идет на сервер
+    @Test
+    void releaseKeyAfterResponse() throws InterruptedException {
+        execute(Mono.just(ok("item"))).block();
+        awaitReleased();
+        execute(Mono.just(ok("item"))).block();
+
+        assertEquals(2, upstreamCalls.get(), "Ответ сервера сохранился после завершения запроса");
+    }
+
+    //Ошибка сервера не оставляет ключ занятым
+    @Test
+    void releaseKeyAfterError() throws InterruptedException {
+        Sinks.One<ResponseEntity<byte[]>> server = Sinks.one();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        execute(server.asMono()).subscribe(response -> { }, error::set);
+        server.tryEmitError(new IllegalStateException("server is down"));
+
+        assertTrue(error.get() instanceof IllegalStateException, "Ошибка сервера не передана");
+        awaitReleased();
+
+        assertEquals("item", new String(execute(Mono.just(ok("item"))).block().getBody(), StandardCharsets.UTF_8),
+                "Ошибка отдана следующему запросу");
+        assertEquals(2, upstreamCalls.get(), "Следующий запрос не ушел на сервер");
+    }
+
+    //Зависший запрос к серверу обрывается по timeout, и ключ освобождается
+    @Test
+    void releaseKeyAfterTimeout() throws InterruptedException {
+        coalescer = coalescer(Duration.ofMillis(50));
+
+        Mono<ResponseEntity<byte[]>> first = execute(Mono.never());
+        Mono<ResponseEntity<byte[]>> joined = execute(Mono.never());
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, first::block);
+
+        assertTrue(Exceptions.unwrap(thrown) instanceof TimeoutException, "Запрос не оборван по timeout");
+        assertTrue(Exceptions.unwrap(assertThrows(RuntimeException.class, joined::block)) instanceof TimeoutException,
+                "Присоединившийся запрос не получил ошибку");
+        awaitReleased();
+
+        execute(Mono.just(ok("item"))).block();
+
+        assertEquals(2, upstreamCalls.get(), "Следующий запрос не ушел на сервер");
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.shareit.clientTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import ru.practicum.shareit.client.ResponseCache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class ResponseCacheTest {
+    private static final String KEY = "0:10:дрель";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCache cache;
+
+    private ResponseCache cache(Duration ttl, Duration staleWhileRevalidate, Duration staleIfError) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new ResponseCache("items", meterRegistry, 1024 * 1024, ttl, staleWhileRevalidate, staleIfError);
+    }
+
+    private String get(Mono<ResponseEntity<byte[]>> upstream) {
+        return body(cache.get(KEY, () -> {
+            upstreamCalls.incrementAndGet();
+            return upstream;
+        }).block());
+    }
+
+    private static ResponseEntity<byte[]> ok(String body) {
+        return ResponseEntity.ok(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String body(ResponseEntity<byte[]> response) {
+        return new String(response.getBody(), StandardCharsets.UTF_8);
+    }
+
+    private double count(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+
+    //Свежий ответ отдается без обращения к серверу
+    @Test
+    void serveFreshResponse() {
+        cache = cache(Duration.ofMinutes(1), Duration.ZERO, Duration.ZERO);
+
+        assertEquals("[1]", get(Mono.just(ok("[1]"))), "Неверный ответ сервера");
+        assertEquals("[1]", get(Mono.just(ok("[2]"))), "Ответ не взят из кэша");
+        assertEquals(1, upstreamCalls.get(), "Лишний запрос к серверу");
+        assertEquals(1, count("cache.gets", "result", "hit"), "Попадание не учтено");
+    }
+
+    //Устаревший ответ отдается сразу, а сервер запрашивается заново в фоне
+    @Test
+    void serveStaleWhileRevalidate() throws InterruptedException {
+        cache = cache(Duration.ofMillis(50), Duration.ofMinutes(1), Duration.ZERO);
+
+        get(Mono.just(ok("[1]")));
+        Thread.sleep(100);
+
+        assertEquals("[1]", get(Mono.just(ok("[2]"))), "Устаревший ответ не отдан");
+        assertEquals(1, count("cache.stale", "reason", "revalidate"), "Устаревший ответ не учтен");
+
+        String revalidated = "[1]";
+
+        for (int i = 0; i < 500 && !revalidated.equals("[2]"); i++) {
+            Thread.sleep(10);
+            revalidated = get(Mono.just(ok("[2]")));
+        }
+        assertEquals("[2]", revalidated, "Ответ не обновлен в фоне");
+    }
+
+    //При ошибке или ответе 5xx сервера отдается последний удачный ответ
+    @Test
+    void serveStaleOnError() throws InterruptedException {
+        cache = cache(Duration.ofMillis(10), Duration.ZERO, Duration.ofMinutes(1));
+
+        get(Mono.just(ok("[1]")));
+        Thread.sleep(50);
+
+        assertEquals("[1]", get(Mono.error(new IllegalStateException("server is down"))),
+                "Не отдан ответ при недоступном сервере");
+        assertEquals("[1]", get(Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new byte[0]))),
+                "Не отдан ответ при ошибке сервера");
+        assertEquals(2, count("cache.stale", "reason", "error"), "Ответы при ошибке не учтены");
+    }
+
+    //Ответ, запрошенный до инвалидации, в кэш не попадает
+    @Test
+    void skipPutAfterInvalidation() {
+        cache = cache(Duration.ofMinutes(1), Duration.ZERO, Duration.ZERO);
+
+        Sinks.One<ResponseEntity<byte[]>> server = Sinks.one();
+        AtomicReference<ResponseEntity<byte[]>> response = new AtomicReference<>();
+
+        cache.get(KEY, server::asMono).subscribe(response::set);
+        cache.invalidateAll();
+        server.tryEmitValue(ok("[1]"));
+
+        assertNotNull(response.get(), "Ответ не передан клиенту");
+        assertEquals(0, cache.size(), "Записан ответ, запрошенный до инвалидации");
+        assertEquals("[2]", get(Mono.just(ok("[2]"))), "Отдан ответ, запрошенный до инвалидации");
+        assertEquals(1, cache.size(), "Ответ после инвалидации не записан");
+    }
+}
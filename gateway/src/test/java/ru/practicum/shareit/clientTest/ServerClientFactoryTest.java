@@ -0,0 +1,68 @@
+package ru.practicum.shareit.clientTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ServerClientFactory;
+import ru.practicum.shareit.client.enums.ClientEngine;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServerClientFactoryTest {
+    private static final Duration COALESCING_TIMEOUT = Duration.ofMillis(300);
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(30);
+
+    //Сервер принимает соединения в очередь, но никогда не отвечает
+    private ServerSocket stalledServer;
+    private ServerClientFactory factory;
+
+    private static class TestClient extends BaseClient {
+        TestClient(ServerClientFactory serverClientFactory) {
+            super(serverClientFactory, "");
+        }
+
+        Mono<ResponseEntity<byte[]>> getItem() {
+            return get("/items/1");
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        stalledServer = new ServerSocket(0);
+        factory = new ServerClientFactory("http://localhost:" + stalledServer.getLocalPort(), ClientEngine.BLOCKING,
+                10, 10, 10, Duration.ofSeconds(2), Duration.ofSeconds(5), READ_TIMEOUT, Duration.ofSeconds(15), 2,
+                new RestTemplateBuilder(), WebClient.builder(), new SimpleMeterRegistry(),
+                new RequestCoalescer(new SimpleMeterRegistry(), true, COALESCING_TIMEOUT));
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        factory.close();
+        stalledServer.close();
+    }
+
+    //В блокирующем режиме поток первого запроса освобождается через coalescing.timeout, а не через read-timeout
+    @Test
+    void blockingLeaderStopsAtCoalescingTimeout() {
+        TestClient client = new TestClient(factory);
+        long start = System.nanoTime();
+
+        assertThrows(RuntimeException.class, () -> client.getItem().block());
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(5)) < 0,
+                "Поток первого запроса ждал сервер " + elapsed.toMillis() + " мс");
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.shareit.handlerTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.shareit.handler.ExHandler;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExHandlerTest {
+    private MockMvc mvc;
+
+    //Контроллер, который падает так же, как BaseClient при ошибке соединения с сервером
+    @RestController
+    static class FailingController {
+        @GetMapping("/refused")
+        public void refused() {
+            throw new ResourceAccessException("Сервер недоступен: Connection refused",
+                    new ConnectException("Connection refused"));
+        }
+
+        @GetMapping("/read-timeout")
+        public void readTimeout() {
+            throw new ResourceAccessException("Сервер недоступен: Read timed out",
+                    new SocketTimeoutException("Read timed out"));
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        mvc = MockMvcBuilders.standaloneSetup(new FailingController())
+                .setControllerAdvice(new ExHandler())
+                .build();
+    }
+
+    //Недоступный сервер - 502
+    @Test
+    void serverUnavailable() throws Exception {
+        mvc.perform(get("/refused"))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.description").value("server unavailable"));
+    }
+
+    //Сервер не ответил за тайм-аут чтения - 504
+    @Test
+    void serverReadTimeout() throws Exception {
+        mvc.perform(get("/read-timeout"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.description").value("server timeout"));
+    }
+}
@@ -2,18 +2,31 @@ package ru.practicum.shareit.booking.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.dto.BookingCreateResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionsDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
 import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.dto.BookingRequestsDto;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.pagination.CursorPage;
 
 import java.util.List;
+import java.util.function.Function;
 
 @RestController
 @Slf4j
 @RequiredArgsConstructor
 @RequestMapping(path = "/bookings")
 public class BookingController {
+    //Списки по умолчанию отдаются в кратком виде, view=full возвращает вещь и арендатора целиком
+    public static final String FULL_VIEW = "full";
+
     private final BookingService bookingService;
 
     @PostMapping
@@ -24,27 +37,82 @@ public class BookingController {
         return bookingService.create(bookingDtoSimple, userId);
     }
 
+    @PostMapping("/batch")
+    public List<BookingCreateResultDto> createAll(@RequestBody BookingRequestsDto bookingRequestsDto,
+                                                  @RequestHeader("X-Sharer-User-Id") long userId) {
+        log.info("Получен запрос к эндпоинту: '{} {}', Бронирование: {} шт.", "POST", "/bookings/batch",
+                bookingRequestsDto.getBookings().size());
+        return bookingService.createAll(bookingRequestsDto.getBookings(), userId);
+    }
+
     @GetMapping("/{id}")
     public BookingDto getBooking(@PathVariable long id, @RequestHeader("X-Sharer-User-Id") long userId) {
         log.info("GET booking id={}", id);
         return bookingService.getBooking(id, userId);
     }
 
+    //Краткий вид списка бронирований пользователя
     @GetMapping
-    public List<BookingDto> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
-                                   @RequestParam(defaultValue = "ALL") String state,
-                                   @RequestParam(defaultValue = "0") int from,
-                                   @RequestParam(defaultValue = "20") int size) {
-        return bookingService.getAll(userId, state, from, size);
+    public ResponseEntity<List<BookingDtoShort>> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                        @RequestParam(defaultValue = "ALL") String state,
+                                                        @RequestParam(defaultValue = "0") int from,
+                                                        @RequestParam(defaultValue = "20") int size,
+                                                        @RequestParam(required = false) String after) {
+        return withNextCursor(bookingService.getAllShort(userId, state, from, size, after), size,
+                BookingCursor::after);
     }
 
+    //Полный вид списка бронирований пользователя
+    @GetMapping(params = "view=" + FULL_VIEW)
+    public ResponseEntity<List<BookingDto>> getAllFull(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                       @RequestParam(defaultValue = "ALL") String state,
+                                                       @RequestParam(defaultValue = "0") int from,
+                                                       @RequestParam(defaultValue = "20") int size,
+                                                       @RequestParam(required = false) String after) {
+        return withNextCursor(bookingService.getAll(userId, state, from, size, after), size,
+                BookingCursor::after);
+    }
 
+    //Краткий вид списка бронирований вещей владельца
     @GetMapping("/owner")
-    public List<BookingDto> getAllBookingByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                 @RequestParam(defaultValue = "ALL") String state,
-                                                 @RequestParam(defaultValue = "0") int from,
-                                                 @RequestParam(defaultValue = "20") int size) {
-        return bookingService.getAllBookingByOwner(userId, state, from, size);
+    public ResponseEntity<List<BookingDtoShort>> getAllBookingByOwner(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam(defaultValue = "ALL") String state,
+            @RequestParam(defaultValue = "0") int from,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String after) {
+        return withNextCursor(bookingService.getAllShortBookingByOwner(userId, state, from, size, after), size,
+                BookingCursor::after);
+    }
+
+    //Полный вид списка бронирований вещей владельца
+    @GetMapping(path = "/owner", params = "view=" + FULL_VIEW)
+    public ResponseEntity<List<BookingDto>> getAllFullBookingByOwner(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam(defaultValue = "ALL") String state,
+            @RequestParam(defaultValue = "0") int from,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String after) {
+        return withNextCursor(bookingService.getAllBookingByOwner(userId, state, from, size, after), size,
+                BookingCursor::after);
+    }
+
+    @GetMapping("/stats")
+    public BookingStatsDto getStats(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.getStats(userId);
+    }
+
+    @GetMapping("/owner/stats")
+    public BookingStatsDto getOwnerStats(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.getOwnerStats(userId);
+    }
+
+    @PatchMapping("/batch")
+    public List<BookingDecisionResultDto> approveAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                     @RequestBody BookingDecisionsDto bookingDecisionsDto) {
+        log.info("Получен запрос к эндпоинту: '{} {}', Подтверждение бронирований: {} шт.", "PATCH",
+                "/bookings/batch", bookingDecisionsDto.getDecisions().size());
+        return bookingService.approveAll(userId, bookingDecisionsDto.getDecisions());
     }
 
     @PatchMapping("/{bookingId}")
@@ -54,4 +122,9 @@ public class BookingController {
                 bookingId);
         return bookingService.approve(userId, bookingId, approved);
     }
+
+    private static <T> ResponseEntity<List<T>> withNextCursor(List<T> bookings, int size,
+                                                              Function<T, BookingCursor> cursorOf) {
+        return CursorPage.withNextCursor(bookings, size, booking -> cursorOf.apply(booking).encode());
+    }
 }
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+import ru.practicum.shareit.booking.enums.Status;
+
+//Число броней пары арендатор - владелец в одном статусе
+public interface BookingCountView {
+    Long getBookerId();
+
+    Long getOwnerId();
+
+    Status getStatus();
+
+    Long getTotal();
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Итог создания одной брони из пакета: созданная бронь или причина отказа
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingCreateResultDto {
+    private BookingDtoShort booking;
+    private String error;
+}
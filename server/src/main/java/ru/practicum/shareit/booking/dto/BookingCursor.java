@@ -0,0 +1,46 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ru.practicum.shareit.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+//Позиция в списке броней, отсортированном по (start, id) по убыванию
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class BookingCursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime start;
+    private final long id;
+
+    public static BookingCursor after(BookingDto bookingDto) {
+        return new BookingCursor(bookingDto.getStart(), bookingDto.getId());
+    }
+
+    public static BookingCursor after(BookingDtoShort bookingDto) {
+        return new BookingCursor(bookingDto.getStart(), bookingDto.getId());
+    }
+
+    public static BookingCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            return new BookingCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ValidationException("Некорректный курсор страницы");
+        }
+    }
+
+    public String encode() {
+        String value = start + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
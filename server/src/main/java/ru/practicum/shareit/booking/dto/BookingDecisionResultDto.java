@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.enums.Status;
+
+//Итог решения по одной брони: новый статус или текущий статус и причина отказа
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingDecisionResultDto {
+    private Long bookingId;
+    private Status status;
+    private String error;
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.booking.dto;
+
+//Последняя или следующая бронь вещи из пакетного запроса
+public interface BookingDtoForItemView {
+    Long getId();
+
+    Long getItemId();
+
+    Long getBookerId();
+
+    Boolean getLast();
+}
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.enums.Status;
+
+import java.time.LocalDateTime;
+
+//Бронь для списков: читается конструктором прямо из запроса, без сущностей вещи и пользователей.
+//Вложенные item и booker сохраняют пути item.id, item.name и booker.id полного ответа.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingDtoShort {
+    private Long id;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Status status;
+    private ItemShort item;
+    private BookerShort booker;
+
+    public BookingDtoShort(Long id, LocalDateTime start, LocalDateTime end, Status status, Long itemId,
+                           String itemName, Long bookerId) {
+        this(id, start, end, status, new ItemShort(itemId, itemName), new BookerShort(bookerId));
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ItemShort {
+        private Long id;
+        private String name;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class BookerShort {
+        private Long id;
+    }
+}
@@ -17,6 +17,16 @@ public class BookingMapper {
         );
     }
 
+    public static BookingDtoShort toBookingDtoShort(Booking booking) {
+        return new BookingDtoShort(booking.getId(),
+                booking.getStart(),
+                booking.getEnd(),
+                booking.getStatus(),
+                booking.getItem().getId(),
+                booking.getItem().getName(),
+                booking.getBooker().getId());
+    }
+
     public static Booking toBooking(BookingDto bookingDto) {
         return new Booking(bookingDto.getId(),
                 bookingDto.getStart(),
@@ -26,8 +36,9 @@ public class BookingMapper {
                 bookingDto.getStatus());
     }
 
+    //Идентификатор новой брони назначает база: переданный клиентом id превратил бы сохранение в merge
     public static Booking fromSimpleToBooking(BookingDtoSimple bookingDtoSimple) {
-        return new Booking(bookingDtoSimple.getId(),
+        return new Booking(null,
                 bookingDtoSimple.getStart(),
                 bookingDtoSimple.getEnd(),
                 null,
@@ -40,4 +51,9 @@ public class BookingMapper {
                 booking.getBooker().getId()
         );
     }
-}
\ No newline at end of file
+
+
+    public static BookingDtoForItem toBookingDtoForItem(BookingDtoForItemView view) {
+        return new BookingDtoForItem(view.getId(), view.getBookerId());
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Количество броней пользователя по состояниям списков GET /bookings и GET /bookings/owner
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingStatsDto {
+    private long all;
+    private long current;
+    private long past;
+    private long future;
+    private long waiting;
+    private long rejected;
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.dto;
+
+import ru.practicum.shareit.booking.enums.Status;
+
+import java.time.LocalDateTime;
+
+//Бронь, у которой еще может смениться состояние: не завершилась или ждет решения
+public interface BookingTimelineView {
+    Long getId();
+
+    LocalDateTime getStart();
+
+    LocalDateTime getEnd();
+
+    Long getBookerId();
+
+    Long getOwnerId();
+
+    Status getStatus();
+}
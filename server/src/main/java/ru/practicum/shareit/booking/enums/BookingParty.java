@@ -0,0 +1,7 @@
+package ru.practicum.shareit.booking.enums;
+
+//Сторона брони, чей список запрашивается: арендатор или владелец вещи
+public enum BookingParty {
+    BOOKER,
+    OWNER
+}
@@ -1,6 +1,5 @@
 package ru.practicum.shareit.booking.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -14,24 +13,50 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
+@NamedEntityGraph(name = Booking.DETAILS_GRAPH,
+        attributeNodes = {@NamedAttributeNode(value = "item", subgraph = "item"), @NamedAttributeNode("booker")},
+        subgraphs = {
+                @NamedSubgraph(name = "item", attributeNodes = {
+                        @NamedAttributeNode("owner"),
+                        @NamedAttributeNode(value = "itemRequest", subgraph = "itemRequest")}),
+                @NamedSubgraph(name = "itemRequest", attributeNodes = @NamedAttributeNode("requestor"))
+        })
 @Table(name = "bookings", schema = "public")
 public class Booking {
+    //Все, что попадает в BookingDto: вещь с владельцем и запросом, арендатор
+    public static final String DETAILS_GRAPH = "Booking.details";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //Последовательность с шагом 50 позволяет Hibernate выдавать id без запроса к базе и пакетировать вставки
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     @Column(name = "booking_id")
     private Long id;
     @Column(name = "start_date", nullable = false)
     private LocalDateTime start;
     @Column(name = "end_date", nullable = false)
     private LocalDateTime end;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
     private Item item;
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "booker_id")
     private User booker;
+    //Копия items.owner_id: списки броней владельца фильтруются без соединения с items.
+    //Согласованность при смене владельца вещи обеспечивает ключ (item_id, owner_id) с ON UPDATE CASCADE
+    @Column(name = "owner_id")
+    private Long ownerId;
     @Enumerated(EnumType.STRING)
     private Status status;
+
+    public Booking(Long id, LocalDateTime start, LocalDateTime end, Item item, User booker, Status status) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.item = item;
+        this.booker = booker;
+        this.status = status;
+        this.ownerId = item == null || item.getOwner() == null ? null : item.getOwner().getId();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.booking.repository;
+
+import ru.practicum.shareit.booking.enums.Status;
+
+import java.util.List;
+
+public interface BookingBatchRepository {
+    //Условная смена статусов одним пакетом, для каждой брони - число измененных строк
+    int[] updateStatusesByOwner(long ownerId, List<Long> bookingIds, List<Status> statuses, Status expectedStatus);
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.repository;
+
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.enums.BookingParty;
+import ru.practicum.shareit.booking.enums.Status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingListRepository {
+    //Брони арендатора или владельца в состоянии state по убыванию (start, id), начиная после cursor и строки offset.
+    //Без курсора условие на позицию в запрос не добавляется, и страница выбирается только смещением.
+    //Вид строки задает type: Booking вместе с вещью, владельцем и арендатором или краткий BookingDtoShort.
+    <T> List<T> findBookings(BookingParty party, long userId, Status state, LocalDateTime time, BookingCursor cursor,
+                             int offset, int size, Class<T> type);
+}
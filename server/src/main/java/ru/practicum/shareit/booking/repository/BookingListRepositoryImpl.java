@@ -0,0 +1,92 @@
+package ru.practicum.shareit.booking.repository;
+
+import lombok.RequiredArgsConstructor;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
+import ru.practicum.shareit.booking.enums.BookingParty;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+//Все списки броней собираются из одного запроса: условие стороны, условие состояния и курсор добавляются
+//к нему по отдельности, поэтому каждое условие записано один раз для обоих видов строки.
+//Сортировка (start, id) по убыванию совпадает с индексами bookings_booker_start_idx и bookings_owner_start_idx.
+@RequiredArgsConstructor
+public class BookingListRepositoryImpl implements BookingListRepository {
+    //Граф загрузки полной брони, как у findById
+    private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+
+    private static final Map<Class<?>, String> SELECTS = Map.of(
+            Booking.class, "select b",
+            BookingDtoShort.class, "select new ru.practicum.shareit.booking.dto.BookingDtoShort(b.id, b.start, " +
+                    "b.end, b.status, b.item.id, b.item.name, b.booker.id)");
+
+    private final EntityManager entityManager;
+
+    @Override
+    public <T> List<T> findBookings(BookingParty party, long userId, Status state, LocalDateTime time,
+                                    BookingCursor cursor, int offset, int size, Class<T> type) {
+        String select = SELECTS.get(type);
+
+        if (select == null) {
+            throw new IllegalArgumentException("Неподдерживаемый вид брони: " + type.getName());
+        }
+        StringBuilder jpql = new StringBuilder(select)
+                .append(" from Booking b where ")
+                .append(party == BookingParty.OWNER ? "b.ownerId" : "b.booker.id")
+                .append(" = :userId");
+        boolean byTime = false;
+        boolean byStatus = false;
+
+        switch (state) {
+            case ALL:
+                break;
+            case CURRENT:
+                jpql.append(" and :time between b.start and b.end");
+                byTime = true;
+                break;
+            case PAST:
+                jpql.append(" and b.end < :time");
+                byTime = true;
+                break;
+            case FUTURE:
+                jpql.append(" and b.start > :time");
+                byTime = true;
+                break;
+            case UNSUPPORTED_STATUS:
+                throw new IllegalArgumentException("Неподдерживаемое состояние: " + state);
+            default:
+                jpql.append(" and b.status = :status");
+                byStatus = true;
+        }
+        if (cursor != null) {
+            jpql.append(" and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId))");
+        }
+        jpql.append(" order by b.start desc, b.id desc");
+
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), type)
+                .setParameter("userId", userId)
+                .setFirstResult(offset)
+                .setMaxResults(size);
+
+        if (cursor != null) {
+            query.setParameter("cursorStart", cursor.getStart())
+                    .setParameter("cursorId", cursor.getId());
+        }
+        if (byTime) {
+            query.setParameter("time", time);
+        }
+        if (byStatus) {
+            query.setParameter("status", state);
+        }
+        if (type == Booking.class) {
+            query.setHint(FETCH_GRAPH_HINT, entityManager.getEntityGraph(Booking.DETAILS_GRAPH));
+        }
+        return query.getResultList();
+    }
+}
@@ -1,57 +1,114 @@
 package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingCountView;
+import ru.practicum.shareit.booking.dto.BookingDtoForItemView;
+import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.dto.BookingTimelineView;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByBookerId(long userId, Pageable pageable);
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingBatchRepository,
+        BookingListRepository {
+    @Override
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    Optional<Booking> findById(Long id);
 
-    List<Booking> searchBookingByItemOwnerId(long id, Pageable pageable);
+    //Смена статуса одним условным UPDATE: строка меняется, только если бронь ждет решения владельца вещи
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Booking b set b.status = ?3 " +
+            "where b.id = ?1 " +
+            "and b.status = ?4 " +
+            "and b.ownerId = ?2")
+    int updateStatusByOwner(long bookingId, long ownerId, Status status, Status expectedStatus);
 
-    List<Booking> searchBookingByBookerIdAndItemIdAndEndIsBeforeAndStatus(long id, long itemId, LocalDateTime time,
-                                                                          Status status);
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    List<Booking> findAllByIdIn(Collection<Long> ids);
 
-    List<Booking> searchBookingByItemOwnerIdAndStartIsAfter(long id, LocalDateTime time, Pageable pageable);
+    @Query("select distinct b.item.id from Booking b where b.id in ?1")
+    List<Long> findItemIdsByIdIn(Collection<Long> ids);
 
-    List<Booking> findByBookerIdAndStartAfter(long userId, LocalDateTime time, Pageable pageable);
+    List<Booking> searchBookingByBookerIdAndItemIdAndEndIsBeforeAndStatus(long id, long itemId, LocalDateTime time,
+                                                                          Status status);
 
+    @Query("select b from Booking b " +
+            "where b.item.id = ?1 " +
+            "and b.end < ?2 " +
+            "order by b.end desc")
     List<Booking> findBookingsByItemIdAndEndIsBeforeOrderByEndDesc(long id, LocalDateTime time);
 
+    @Query("select b from Booking b " +
+            "where b.item.id = ?1 " +
+            "and b.start > ?2 " +
+            "order by b.start desc")
     List<Booking> findBookingsByItemIdAndStartIsAfterOrderByStartDesc(long id, LocalDateTime time);
 
-    List<Booking> findBookingsByBookerIdAndStatus(long userId, Status status, Pageable pageable);
-
-    List<Booking> findBookingsByItemOwnerIdAndStatus(long id, Status status, Pageable pageable);
-
-    @Query("select b " +
-            "from Booking b left join User as us on b.booker.id = us.id " +
-            "where us.id = ?1 " +
-            "and ?2 between b.start and b.end " +
-            "order by b.start DESC")
-    List<Booking> findCurrentBookingsByBookerId(long userId, LocalDateTime time, Pageable pageable);
-
-    @Query("select b " +
-            "from Booking b left join Item as i on b.item.id = i.id " +
-            "left join User as us on i.owner.id = us.id " +
-            "where us.id = ?1 " +
-            "and ?2 between b.start and b.end " +
-            "order by b.start DESC")
-    List<Booking> findCurrentBookingsByItemOwnerId(long userId, LocalDateTime time, Pageable pageable);
-
-    List<Booking> findBookingsByBookerIdAndEndIsBefore(long userId, LocalDateTime time, Pageable pageable);
-
-    List<Booking> findBookingsByItemOwnerIdAndEndIsBefore(long userId, LocalDateTime time, Pageable pageable);
-
-    Optional<Booking> findTopByItemOwnerIdAndStatusAndStartBeforeOrderByEndDesc(long id, Status status, LocalDateTime time);
-
-    Optional<Booking> findTopByItemOwnerIdAndStatusAndStartAfterOrderByStartAsc(long id, Status status, LocalDateTime time);
-
-    List<Booking> findBookingByItemIdOrderByStartAsc(long itemId);
-}
\ No newline at end of file
+    //Последняя и следующая брони одной вещи: страница из одной строки
+    @Query("select b from Booking b " +
+            "where b.item.id = ?1 " +
+            "and b.status = ?2 " +
+            "and b.start < ?3 " +
+            "order by b.end desc")
+    List<Booking> findItemBookingsStartedBefore(long itemId, Status status, LocalDateTime time, Pageable pageable);
+
+    @Query("select b from Booking b " +
+            "where b.item.id = ?1 " +
+            "and b.status = ?2 " +
+            "and b.start > ?3 " +
+            "order by b.start")
+    List<Booking> findItemBookingsStartingAfter(long itemId, Status status, LocalDateTime time, Pageable pageable);
+
+    @Query(value = "select last_bookings.booking_id as \"id\", last_bookings.item_id as \"itemId\", " +
+            "last_bookings.booker_id as \"bookerId\", true as \"last\" " +
+            "from (select b.booking_id, b.item_id, b.booker_id, row_number() over " +
+            "(partition by b.item_id order by b.start_date desc, b.booking_id desc) as position " +
+            "from bookings b where b.item_id in (?1) and b.end_date < ?2) last_bookings " +
+            "where last_bookings.position = 1 " +
+            "union all " +
+            "select next_bookings.booking_id, next_bookings.item_id, next_bookings.booker_id, false " +
+            "from (select b.booking_id, b.item_id, b.booker_id, row_number() over " +
+            "(partition by b.item_id order by b.start_date, b.booking_id) as position " +
+            "from bookings b where b.item_id in (?1) and b.start_date > ?2) next_bookings " +
+            "where next_bookings.position = 1",
+            nativeQuery = true)
+    List<BookingDtoForItemView> findLastAndNextBookings(Collection<Long> itemIds, LocalDateTime time);
+
+    @Query("select new ru.practicum.shareit.booking.dto.BookingDtoSimple(b.id, b.start, b.end, b.item.id) " +
+            "from Booking b " +
+            "where b.status in ?1 " +
+            "and b.end > ?2")
+    List<BookingDtoSimple> findActiveIntervals(Collection<Status> statuses, LocalDateTime time);
+
+    //Загрузка счетчиков при старте: агрегаты завершившихся броней по парам арендатор - владелец
+    @Query("select b.booker.id as bookerId, b.ownerId as ownerId, b.status as status, count(b) as total " +
+            "from Booking b " +
+            "where b.end < ?1 " +
+            "group by b.booker.id, b.ownerId, b.status")
+    List<BookingCountView> countEndedBookingsByParties(LocalDateTime time);
+
+    //Брони, которые еще не завершились. Вместе со следующим запросом заменяет условие
+    //"не завершилась или ждет решения": OR по разным колонкам базы выполняют полным просмотром
+    @Query("select b.id as id, b.start as start, b.end as end, b.booker.id as bookerId, b.ownerId as ownerId, " +
+            "b.status as status " +
+            "from Booking b " +
+            "where b.end >= ?1")
+    List<BookingTimelineView> findTimelineEndingFrom(LocalDateTime time);
+
+    //Завершившиеся брони в статусе status, не пересекаются с результатом findTimelineEndingFrom
+    @Query("select b.id as id, b.start as start, b.end as end, b.booker.id as bookerId, b.ownerId as ownerId, " +
+            "b.status as status " +
+            "from Booking b " +
+            "where b.status = ?1 and b.end < ?2")
+    List<BookingTimelineView> findTimelineByStatusEndedBefore(Status status, LocalDateTime time);
+}
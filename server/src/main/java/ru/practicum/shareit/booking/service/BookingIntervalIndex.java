@@ -0,0 +1,163 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.AvailableException;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Индекс занятых интервалов по каждой вещи: WAITING и APPROVED брони не должны пересекаться
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingIntervalIndex {
+    private static final List<Status> ACTIVE_STATUSES = List.of(Status.WAITING, Status.APPROVED);
+
+    private final BookingRepository bookingRepository;
+    private final Map<Long, ItemSchedule> schedules = new ConcurrentHashMap<>();
+    private final Map<Long, Reservation> reservationsByBooking = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    //Заполнение индекса активными бронями при старте
+    @PostConstruct
+    public void load() {
+        List<BookingDtoSimple> intervals = bookingRepository.findActiveIntervals(ACTIVE_STATUSES,
+                LocalDateTime.now());
+
+        for (BookingDtoSimple interval : intervals) {
+            Reservation reservation = new Reservation(interval.getItemId(), interval.getStart(), interval.getEnd(),
+                    sequence.incrementAndGet());
+            schedule(interval.getItemId()).add(reservation);
+            attach(reservation, interval.getId());
+        }
+        log.info("Индекс интервалов бронирования заполнен: {} броней", intervals.size());
+    }
+
+    //Резервирование интервала, если он не пересекается с активными бронями вещи
+    public Reservation reserve(long itemId, LocalDateTime start, LocalDateTime end) {
+        Reservation reservation = new Reservation(itemId, start, end, sequence.incrementAndGet());
+
+        if (!schedule(itemId).tryAdd(reservation)) {
+            throw new AvailableException("Вещь уже забронирована на это время");
+        }
+        return reservation;
+    }
+
+    //Привязка резерва к сохраненной брони
+    public void attach(Reservation reservation, long bookingId) {
+        reservation.bookingId = bookingId;
+        reservationsByBooking.put(bookingId, reservation);
+    }
+
+    //Отмена резерва, если бронь не удалось сохранить
+    public void cancel(Reservation reservation) {
+        schedule(reservation.itemId).remove(reservation);
+        if (reservation.bookingId != null) {
+            reservationsByBooking.remove(reservation.bookingId);
+        }
+    }
+
+    //Освобождение интервала отклоненной брони
+    public void release(long bookingId) {
+        Reservation reservation = reservationsByBooking.remove(bookingId);
+
+        if (reservation != null) {
+            cancel(reservation);
+        }
+    }
+
+    private ItemSchedule schedule(long itemId) {
+        return schedules.computeIfAbsent(itemId, id -> new ItemSchedule());
+    }
+
+    public static final class Reservation {
+        private static final Comparator<Reservation> BY_START = Comparator
+                .comparing((Reservation reservation) -> reservation.start)
+                .thenComparingLong(reservation -> reservation.sequence);
+
+        private final long itemId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final long sequence;
+        private volatile Long bookingId;
+
+        private Reservation(long itemId, LocalDateTime start, LocalDateTime end, long sequence) {
+            this.itemId = itemId;
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+        }
+    }
+
+    //Интервалы одной вещи, упорядоченные по началу. Пока они не пересекаются, упорядочены и концы,
+    //поэтому пересечение проверяется одним поиском ближайшего интервала, начинающегося до конца нового.
+    private final class ItemSchedule {
+        private final TreeSet<Reservation> reservations = new TreeSet<>(Reservation.BY_START);
+        //Сброс флага возможен только при загрузке исторических пересекающихся броней
+        private boolean disjoint = true;
+
+        synchronized boolean tryAdd(Reservation candidate) {
+            pruneFinished();
+            if (overlaps(candidate)) {
+                return false;
+            }
+            reservations.add(candidate);
+            return true;
+        }
+
+        synchronized void add(Reservation reservation) {
+            if (disjoint && overlaps(reservation)) {
+                disjoint = false;
+            }
+            reservations.add(reservation);
+        }
+
+        synchronized void remove(Reservation reservation) {
+            reservations.remove(reservation);
+        }
+
+        private boolean overlaps(Reservation candidate) {
+            Reservation probe = new Reservation(candidate.itemId, candidate.end, candidate.end, Long.MIN_VALUE);
+
+            if (disjoint) {
+                Reservation previous = reservations.lower(probe);
+                return previous != null && previous.end.isAfter(candidate.start);
+            }
+            for (Reservation reservation : reservations.headSet(probe, false)) {
+                if (reservation.end.isAfter(candidate.start)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        //Завершившиеся брони больше не могут пересечься с новыми и удаляются из начала набора
+        private void pruneFinished() {
+            LocalDateTime now = LocalDateTime.now();
+            Iterator<Reservation> iterator = reservations.iterator();
+
+            while (iterator.hasNext()) {
+                Reservation reservation = iterator.next();
+                if (!reservation.end.isBefore(now)) {
+                    break;
+                }
+                iterator.remove();
+                if (reservation.bookingId != null) {
+                    reservationsByBooking.remove(reservation.bookingId);
+                }
+            }
+        }
+    }
+}
@@ -1,19 +1,36 @@
 package ru.practicum.shareit.booking.service;
 
+import ru.practicum.shareit.booking.dto.BookingCreateResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
 import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
 
 import java.util.List;
 
 public interface BookingService {
     BookingDto create(BookingDtoSimple bookingDtoSimple, long userId);
 
+    List<BookingCreateResultDto> createAll(List<BookingDtoSimple> bookingDtoSimples, long userId);
+
     BookingDto getBooking(long bookingId, long userId);
 
-    List<BookingDto> getAll(long userId, String state, int from, int size);
+    List<BookingDto> getAll(long userId, String state, int from, int size, String after);
+
+    List<BookingDto> getAllBookingByOwner(long userId, String state, int from, int size, String after);
+
+    List<BookingDtoShort> getAllShort(long userId, String state, int from, int size, String after);
 
-    List<BookingDto> getAllBookingByOwner(long userId, String state, int from, int size);
+    List<BookingDtoShort> getAllShortBookingByOwner(long userId, String state, int from, int size, String after);
+
+    BookingStatsDto getStats(long userId);
+
+    BookingStatsDto getOwnerStats(long userId);
 
     BookingDto approve(long userId, long bookingId, Boolean approved);
 
+    List<BookingDecisionResultDto> approveAll(long userId, List<BookingDecisionDto> decisions);
+
 }
\ No newline at end of file
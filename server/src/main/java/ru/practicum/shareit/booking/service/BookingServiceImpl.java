@@ -1,44 +1,65 @@
 package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dto.BookingCreateResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
 import ru.practicum.shareit.booking.dto.BookingDtoSimple;
 import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.enums.BookingParty;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.AvailableException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingServiceImpl implements BookingService {
+    //Состояния, по которым можно запросить список броней
+    private static final Set<Status> LIST_STATES = EnumSet.of(Status.ALL, Status.CURRENT, Status.PAST,
+            Status.FUTURE, Status.WAITING, Status.REJECTED);
 
     private final BookingRepository bookingRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingStatsCounter bookingStatsCounter;
+    private final ItemViewCache itemViewCache;
+    private final IdDirectory idDirectory;
 
     //Создание брони
     @Override
     public BookingDto create(BookingDtoSimple bookingDtoSimple, long userId) {
-        if (bookingDtoSimple.getEnd().isBefore(bookingDtoSimple.getStart())) {
-            throw new ValidationException("Время окончания не может быть больше времени начала");
-        }
-        if (bookingDtoSimple.getEnd().equals(bookingDtoSimple.getStart())) {
-            throw new ValidationException("Время окончания не может быть равно времени начала");
-        }
+        checkInterval(bookingDtoSimple);
+
         Booking booking = BookingMapper.fromSimpleToBooking(bookingDtoSimple);
 
         booking.setBooker(userRepository.findById(userId).orElseThrow());
@@ -46,14 +67,111 @@ public class BookingServiceImpl implements BookingService {
         Item item = itemRepository.findById(bookingDtoSimple.getItemId())
                 .orElseThrow(() -> new NotFoundException("Неверный идентификатор вещи"));
 
+        checkBookable(item, userId);
+        booking.setItem(item);
+        booking.setOwnerId(item.getOwner().getId());
+
+        BookingIntervalIndex.Reservation reservation = bookingIntervalIndex.reserve(item.getId(),
+                booking.getStart(), booking.getEnd());
+        Booking savedBooking;
+        try {
+            savedBooking = bookingRepository.save(booking);
+        } catch (RuntimeException e) {
+            bookingIntervalIndex.cancel(reservation);
+            throw e;
+        }
+        bookingIntervalIndex.attach(reservation, savedBooking.getId());
+        bookingStatsCounter.added(savedBooking);
+        itemViewCache.invalidateOwnerView(item.getId());
+        return BookingMapper.toBookingDto(savedBooking);
+    }
+
+    //Пакетное создание: пользователь и вещи загружаются один раз, брони вставляются одним пакетом JDBC
+    @Override
+    @Transactional
+    public List<BookingCreateResultDto> createAll(List<BookingDtoSimple> bookingDtoSimples, long userId) {
+        User booker = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("Неверный идентификатор пользователя"));
+
+        Set<Long> itemIds = bookingDtoSimples.stream()
+                .map(BookingDtoSimple::getItemId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<BookingCreateResultDto> results = new ArrayList<>(bookingDtoSimples.size());
+        List<Booking> bookings = new ArrayList<>();
+        List<BookingIntervalIndex.Reservation> reservations = new ArrayList<>();
+
+        for (BookingDtoSimple bookingDtoSimple : bookingDtoSimples) {
+            try {
+                checkInterval(bookingDtoSimple);
+
+                Item item = items.get(bookingDtoSimple.getItemId());
+                if (item == null) {
+                    throw new NotFoundException("Неверный идентификатор вещи");
+                }
+                checkBookable(item, userId);
+
+                reservations.add(bookingIntervalIndex.reserve(item.getId(), bookingDtoSimple.getStart(),
+                        bookingDtoSimple.getEnd()));
+
+                Booking booking = BookingMapper.fromSimpleToBooking(bookingDtoSimple);
+                booking.setItem(item);
+                booking.setOwnerId(item.getOwner().getId());
+                booking.setBooker(booker);
+                bookings.add(booking);
+                results.add(new BookingCreateResultDto());
+            } catch (ValidationException | NotFoundException | AvailableException e) {
+                results.add(new BookingCreateResultDto(null, e.getMessage()));
+            }
+        }
+        //резервы снимаются и тогда, когда откатывается сама транзакция, уже после выхода из метода
+        afterRollback(() -> reservations.forEach(bookingIntervalIndex::cancel));
+        try {
+            bookingRepository.saveAll(bookings);
+            bookingRepository.flush();
+        } catch (RuntimeException e) {
+            reservations.forEach(bookingIntervalIndex::cancel);
+            throw e;
+        }
+        Iterator<Booking> saved = bookings.iterator();
+        Iterator<BookingIntervalIndex.Reservation> reserved = reservations.iterator();
+
+        for (BookingCreateResultDto result : results) {
+            if (result.getError() == null) {
+                Booking booking = saved.next();
+                bookingIntervalIndex.attach(reserved.next(), booking.getId());
+                result.setBooking(BookingMapper.toBookingDtoShort(booking));
+            }
+        }
+        afterCommit(() -> {
+            bookings.forEach(bookingStatsCounter::added);
+            itemIds.forEach(itemViewCache::invalidateOwnerView);
+        });
+        return results;
+    }
+
+    private static void checkInterval(BookingDtoSimple bookingDtoSimple) {
+        if (bookingDtoSimple.getStart() == null || bookingDtoSimple.getEnd() == null) {
+            throw new ValidationException("Необходимо указать время начала и окончания");
+        }
+        if (bookingDtoSimple.getEnd().isBefore(bookingDtoSimple.getStart())) {
+            throw new ValidationException("Время окончания не может быть больше времени начала");
+        }
+        if (bookingDtoSimple.getEnd().equals(bookingDtoSimple.getStart())) {
+            throw new ValidationException("Время окончания не может быть равно времени начала");
+        }
+    }
+
+    private static void checkBookable(Item item, long userId) {
         if (Boolean.FALSE.equals(item.getAvailable())) {
             throw new AvailableException("Эта вещь недоступна для аренды");
         }
         if (item.getOwner().getId() == userId) {
             throw new NotFoundException("Владелец вещи не может забронировать свою вещь");
         }
-        booking.setItem(item);
-        return BookingMapper.toBookingDto(bookingRepository.save(booking));
     }
 
     //Получение брони
@@ -70,99 +188,207 @@ public class BookingServiceImpl implements BookingService {
     }
 
     //Получение всех бронирований
-    public List<BookingDto> getAll(long userId, String state, int from, int size) {
-        userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Неверный идентификатор пользователя"));
-
-        int page = from / size;
-        Pageable pageable = PageRequest.of(page, size, Sort.by("start").descending());
-        List<Booking> bookingList;
-
-        switch (Status.valueOf(state)) {
-            case ALL:
-                bookingList = bookingRepository.findByBookerId(userId, pageable);
-                break;
-            case CURRENT:
-                bookingList = bookingRepository.findCurrentBookingsByBookerId(userId, LocalDateTime.now(),
-                        pageable);
-                break;
-            case PAST:
-                bookingList = bookingRepository.findBookingsByBookerIdAndEndIsBefore(userId, LocalDateTime.now(),
-                        pageable);
-                break;
-            case FUTURE:
-                bookingList = bookingRepository.findByBookerIdAndStartAfter(userId, LocalDateTime.now(), pageable);
-                break;
-            case WAITING:
-                bookingList = bookingRepository.findBookingsByBookerIdAndStatus(userId, Status.WAITING, pageable);
-                break;
-            case REJECTED:
-                bookingList = bookingRepository.findBookingsByBookerIdAndStatus(userId, Status.REJECTED, pageable);
-                break;
-            default:
-                throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
-        }
-        return bookingList.stream().map(BookingMapper::toBookingDto).collect(Collectors.toList());
+    public List<BookingDto> getAll(long userId, String state, int from, int size, String after) {
+        return findBookings(BookingParty.BOOKER, userId, state, from, size, after, Booking.class).stream()
+                .map(BookingMapper::toBookingDto)
+                .collect(Collectors.toList());
     }
 
     //Получение всех бронирований пользователя
     @Override
-    public List<BookingDto> getAllBookingByOwner(long userId, String state, int from, int size) {
-        userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Неверный идентификатор пользователя"));
-
-        int page = from / size;
-        Pageable pageable = PageRequest.of(page, size, Sort.by("start").descending());
-
-        List<Booking> bookingList;
-
-        switch (Status.valueOf(state)) {
-            case ALL:
-                bookingList = bookingRepository.searchBookingByItemOwnerId(userId, pageable);
-                break;
-            case CURRENT:
-                bookingList = bookingRepository.findCurrentBookingsByItemOwnerId(userId, LocalDateTime.now(),
-                        pageable);
-                break;
-            case PAST:
-                bookingList = bookingRepository.findBookingsByItemOwnerIdAndEndIsBefore(userId, LocalDateTime.now(),
-                        pageable);
-                break;
-            case FUTURE:
-                bookingList = bookingRepository.searchBookingByItemOwnerIdAndStartIsAfter(userId, LocalDateTime.now(),
-                        pageable);
-                break;
-            case WAITING:
-                bookingList = bookingRepository.findBookingsByItemOwnerIdAndStatus(userId, Status.WAITING, pageable);
-                break;
-            case REJECTED:
-                bookingList = bookingRepository.findBookingsByItemOwnerIdAndStatus(userId, Status.REJECTED, pageable);
-                break;
-            default:
-                throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
-        }
-        return bookingList.stream().map(BookingMapper::toBookingDto).collect(Collectors.toList());
+    public List<BookingDto> getAllBookingByOwner(long userId, String state, int from, int size, String after) {
+        return findBookings(BookingParty.OWNER, userId, state, from, size, after, Booking.class).stream()
+                .map(BookingMapper::toBookingDto)
+                .collect(Collectors.toList());
+    }
+
+    //Получение всех бронирований в кратком виде
+    @Override
+    public List<BookingDtoShort> getAllShort(long userId, String state, int from, int size, String after) {
+        return findBookings(BookingParty.BOOKER, userId, state, from, size, after, BookingDtoShort.class);
+    }
+
+    //Получение всех бронирований владельца в кратком виде
+    @Override
+    public List<BookingDtoShort> getAllShortBookingByOwner(long userId, String state, int from, int size,
+                                                           String after) {
+        return findBookings(BookingParty.OWNER, userId, state, from, size, after, BookingDtoShort.class);
+    }
+
+    //Общая выборка списков: полный и краткий вид отличаются только проекцией
+    private <T> List<T> findBookings(BookingParty party, long userId, String state, int from, int size,
+                                     String after, Class<T> type) {
+        idDirectory.requireUser(userId, () -> new NotFoundException("Неверный идентификатор пользователя"));
+
+        Status status = Status.valueOf(state);
+
+        if (!LIST_STATES.contains(status)) {
+            throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
+        }
+        if (size <= 0) {
+            throw new ValidationException("Размер страницы должен быть больше нуля");
+        }
+        return bookingRepository.findBookings(party, userId, status, LocalDateTime.now(), cursorOf(after),
+                offsetOf(after, from), size, type);
+    }
+
+    //Без курсора from - номер первой строки, с курсором страница всегда начинается сразу после него
+    private static BookingCursor cursorOf(String after) {
+        return after == null ? null : BookingCursor.decode(after);
+    }
+
+    private static int offsetOf(String after, int from) {
+        return after == null ? from : 0;
+    }
+
+    //Количество броней пользователя по состояниям
+    @Override
+    public BookingStatsDto getStats(long userId) {
+        idDirectory.requireUser(userId, () -> new NotFoundException("Неверный идентификатор пользователя"));
+        return bookingStatsCounter.getBookerStats(userId);
+    }
+
+    @Override
+    public BookingStatsDto getOwnerStats(long userId) {
+        idDirectory.requireUser(userId, () -> new NotFoundException("Неверный идентификатор пользователя"));
+        return bookingStatsCounter.getOwnerStats(userId);
     }
 
     //Подтверждение брони
     @Override
     public BookingDto approve(long userId, long bookingId, Boolean approved) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new NotFoundException("Неверный идентификатор брони"));
+        if (approved == null) {
+            checkApprovable(findBooking(bookingId), userId);
+            throw new ValidationException("Необходимо подтвердить бронирование");
+        }
+        Status status = approved ? Status.APPROVED : Status.REJECTED;
 
-        BookingDto bookingDto = BookingMapper.toBookingDto(booking);
+        //исход определяет число измененных строк: из конкурирующих решений применяется только одно
+        if (bookingRepository.updateStatusByOwner(bookingId, userId, status, Status.WAITING) == 0) {
+            checkApprovable(findBooking(bookingId), userId);
+            throw new ValidationException("Бронирование уже рассмотрено");
+        }
+        bookingStatsCounter.statusChanged(bookingId, status);
+        if (status == Status.REJECTED) {
+            bookingIntervalIndex.release(bookingId);
+        }
+        Booking booking = findBooking(bookingId);
+
+        itemViewCache.invalidateOwnerView(booking.getItem().getId());
+        return BookingMapper.toBookingDto(booking);
+    }
+
+    //Пакетное подтверждение: все решения в одной транзакции, итог по каждой брони
+    @Override
+    @Transactional
+    public List<BookingDecisionResultDto> approveAll(long userId, List<BookingDecisionDto> decisions) {
+        List<Long> bookingIds = new ArrayList<>(decisions.size());
+        List<Status> statuses = new ArrayList<>(decisions.size());
 
-        if (bookingDto.getItem().getOwner().getId() != userId) {
+        for (BookingDecisionDto decision : decisions) {
+            if (decision.getBookingId() == null || decision.getApproved() == null) {
+                throw new ValidationException("Необходимо подтвердить бронирование");
+            }
+            bookingIds.add(decision.getBookingId());
+            statuses.add(decision.getApproved() ? Status.APPROVED : Status.REJECTED);
+        }
+        int[] updated = bookingRepository.updateStatusesByOwner(userId, bookingIds, statuses, Status.WAITING);
+
+        List<Long> failedIds = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                failedIds.add(bookingIds.get(i));
+            }
+        }
+        Map<Long, Booking> failed = failedIds.isEmpty() ? Map.of() : bookingRepository.findAllByIdIn(failedIds)
+                .stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<BookingDecisionResultDto> results = new ArrayList<>(decisions.size());
+        Map<Long, Status> applied = new HashMap<>();
+        List<Long> rejectedIds = new ArrayList<>();
+
+        for (int i = 0; i < updated.length; i++) {
+            Long bookingId = bookingIds.get(i);
+
+            if (updated[i] != 0) {
+                results.add(new BookingDecisionResultDto(bookingId, statuses.get(i), null));
+                applied.put(bookingId, statuses.get(i));
+                if (statuses.get(i) == Status.REJECTED) {
+                    rejectedIds.add(bookingId);
+                }
+                continue;
+            }
+            Booking booking = failed.get(bookingId);
+            if (booking == null) {
+                results.add(new BookingDecisionResultDto(bookingId, null, "Неверный идентификатор брони"));
+                continue;
+            }
+            String error = "Бронирование уже рассмотрено";
+            Status status = booking.getStatus();
+            try {
+                checkApprovable(booking, userId);
+            } catch (NotFoundException e) {
+                //статус чужой брони не раскрывается, как и в PATCH /bookings/{id}
+                error = e.getMessage();
+                status = null;
+            } catch (ValidationException e) {
+                error = e.getMessage();
+            }
+            results.add(new BookingDecisionResultDto(bookingId, status, error));
+        }
+        List<Long> itemIds = applied.isEmpty() ? List.of()
+                : bookingRepository.findItemIdsByIdIn(applied.keySet());
+
+        afterCommit(() -> {
+            rejectedIds.forEach(bookingIntervalIndex::release);
+            applied.forEach(bookingStatsCounter::statusChanged);
+            itemIds.forEach(itemViewCache::invalidateOwnerView);
+        });
+        return results;
+    }
+
+    //Индексы и счетчики в памяти меняются, только если транзакция зафиксирована
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    //Без транзакции откатывать нечего: ошибки сохранения обрабатывает сам вызывающий
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private Booking findBooking(long bookingId) {
+        return bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new NotFoundException("Неверный идентификатор брони"));
+    }
+
+    //Причина, по которой бронь нельзя подтвердить
+    private static void checkApprovable(Booking booking, long userId) {
+        if (booking.getItem().getOwner().getId() != userId) {
             throw new NotFoundException("Подтвердить бронирование может только владелец вещи");
         }
-        if (bookingDto.getStatus().equals(Status.APPROVED)) {
+        if (booking.getStatus().equals(Status.APPROVED)) {
             throw new ValidationException("Бронирование уже подтверждено");
         }
-        if (approved == null) {
-            throw new ValidationException("Необходимо подтвердить бронирование");
-        } else if (approved) {
-            bookingDto.setStatus(Status.APPROVED);
-        } else {
-            bookingDto.setStatus(Status.REJECTED);
-        }
-        return BookingMapper.toBookingDto(bookingRepository.save(BookingMapper.toBooking(bookingDto)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingCountView;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.dto.BookingTimelineView;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+//Счетчики броней по состояниям для каждого пользователя - как арендатора и как владельца.
+//Статусы меняются при создании и подтверждении, переходы FUTURE -> CURRENT -> PAST - по очереди моментов
+//начала и окончания броней, которая разбирается при каждом обращении.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingStatsCounter {
+    private final BookingRepository bookingRepository;
+    private final Map<Long, Counts> bookerCounts = new HashMap<>();
+    private final Map<Long, Counts> ownerCounts = new HashMap<>();
+    //Участники броней, ждущих решения: только у них может смениться статус
+    private final Map<Long, Parties> waiting = new HashMap<>();
+    private final PriorityQueue<Transition> transitions = new PriorityQueue<>(Transition.ORDER);
+
+    //Заполнение счетчиков при старте: завершившиеся брони агрегируются в базе, остальные загружаются поштучно
+    @PostConstruct
+    public synchronized void load() {
+        LocalDateTime now = LocalDateTime.now();
+
+        for (BookingCountView view : bookingRepository.countEndedBookingsByParties(now)) {
+            update(new Parties(view.getBookerId(), view.getOwnerId()), counts -> {
+                counts.all += view.getTotal();
+                counts.past += view.getTotal();
+                counts.addStatus(view.getStatus(), view.getTotal());
+            });
+        }
+        int loaded = 0;
+
+        for (BookingTimelineView view : bookingRepository.findTimelineEndingFrom(now)) {
+            Parties parties = new Parties(view.getBookerId(), view.getOwnerId());
+
+            update(parties, counts -> {
+                counts.all++;
+                counts.addStatus(view.getStatus(), 1);
+            });
+            if (view.getStatus() == Status.WAITING) {
+                waiting.put(view.getId(), parties);
+            }
+            schedule(parties, view.getStart(), view.getEnd(), now);
+            loaded++;
+        }
+        //завершившиеся брони уже посчитаны в агрегатах, решение по ним еще может измениться
+        for (BookingTimelineView view : bookingRepository.findTimelineByStatusEndedBefore(Status.WAITING, now)) {
+            waiting.put(view.getId(), new Parties(view.getBookerId(), view.getOwnerId()));
+        }
+        log.info("Счетчики броней заполнены: {} пользователей, {} активных броней",
+                bookerCounts.size() + ownerCounts.size(), loaded);
+    }
+
+    //Новая бронь
+    public synchronized void added(Booking booking) {
+        LocalDateTime now = LocalDateTime.now();
+        Parties parties = new Parties(booking.getBooker().getId(), booking.getOwnerId());
+
+        rollover(now);
+        update(parties, counts -> {
+            counts.all++;
+            if (booking.getEnd().isBefore(now)) {
+                counts.past++;
+            }
+            counts.addStatus(booking.getStatus(), 1);
+        });
+        if (booking.getStatus() == Status.WAITING) {
+            waiting.put(booking.getId(), parties);
+        }
+        if (!booking.getEnd().isBefore(now)) {
+            schedule(parties, booking.getStart(), booking.getEnd(), now);
+        }
+    }
+
+    //Решение владельца по ждущей брони
+    public synchronized void statusChanged(long bookingId, Status status) {
+        Parties parties = waiting.remove(bookingId);
+
+        if (parties != null) {
+            update(parties, counts -> {
+                counts.addStatus(Status.WAITING, -1);
+                counts.addStatus(status, 1);
+            });
+        }
+    }
+
+    public synchronized BookingStatsDto getBookerStats(long userId) {
+        rollover(LocalDateTime.now());
+        return toStatsDto(bookerCounts.get(userId));
+    }
+
+    public synchronized BookingStatsDto getOwnerStats(long userId) {
+        rollover(LocalDateTime.now());
+        return toStatsDto(ownerCounts.get(userId));
+    }
+
+    //Бронь попадает в состояние по текущему времени, будущие переходы ставятся в очередь.
+    //Границы совпадают со списками: CURRENT - start <= now <= end, PAST - end < now, FUTURE - start > now.
+    private void schedule(Parties parties, LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        if (start.isAfter(now)) {
+            update(parties, counts -> counts.future++);
+            transitions.add(new Transition(start, true, parties));
+        } else {
+            update(parties, counts -> counts.current++);
+        }
+        transitions.add(new Transition(end, false, parties));
+    }
+
+    private void rollover(LocalDateTime now) {
+        while (!transitions.isEmpty() && transitions.peek().isDue(now)) {
+            Transition transition = transitions.poll();
+
+            update(transition.parties, counts -> {
+                if (transition.start) {
+                    counts.future--;
+                    counts.current++;
+                } else {
+                    counts.current--;
+                    counts.past++;
+                }
+            });
+        }
+    }
+
+    private void update(Parties parties, Consumer<Counts> change) {
+        change.accept(bookerCounts.computeIfAbsent(parties.bookerId, id -> new Counts()));
+        if (parties.ownerId != null) {
+            change.accept(ownerCounts.computeIfAbsent(parties.ownerId, id -> new Counts()));
+        }
+    }
+
+    private static BookingStatsDto toStatsDto(Counts counts) {
+        if (counts == null) {
+            return new BookingStatsDto();
+        }
+        return new BookingStatsDto(counts.all, counts.current, counts.past, counts.future, counts.waiting,
+                counts.rejected);
+    }
+
+    private static final class Counts {
+        private long all;
+        private long current;
+        private long past;
+        private long future;
+        private long waiting;
+        private long rejected;
+
+        private void addStatus(Status status, long delta) {
+            if (status == Status.WAITING) {
+                waiting += delta;
+            } else if (status == Status.REJECTED) {
+                rejected += delta;
+            }
+        }
+    }
+
+    private static final class Parties {
+        private final Long bookerId;
+        private final Long ownerId;
+
+        private Parties(Long bookerId, Long ownerId) {
+            this.bookerId = bookerId;
+            this.ownerId = ownerId;
+        }
+    }
+
+    //Начало брони переводит ее в CURRENT в тот же момент, окончание в PAST - только после него,
+    //поэтому при равном времени начала идут первыми
+    private static final class Transition {
+        private static final Comparator<Transition> ORDER = Comparator
+                .comparing((Transition transition) -> transition.time)
+                .thenComparing(transition -> !transition.start);
+
+        private final LocalDateTime time;
+        private final boolean start;
+        private final Parties parties;
+
+        private Transition(LocalDateTime time, boolean start, Parties parties) {
+            this.time = time;
+            this.start = start;
+            this.parties = parties;
+        }
+
+        private boolean isDue(LocalDateTime now) {
+            return start ? !time.isAfter(now) : time.isBefore(now);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package ru.practicum.shareit.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+//Кэш ответов вместе с готовым телом в UTF-8: объект сериализуется один раз при записи,
+//а при попадании байты отдаются клиенту без повторной работы Jackson.
+//Объем ограничен бюджетом в байтах, вытесняются давно не читавшиеся записи.
+//Метрики публикуются под стандартными для кэшей именами cache.gets, cache.evictions, cache.size
+//и дополнительно cache.bytes с занятым объемом.
+public class JsonResponseCache<V> {
+    //Примерные накладные расходы записи сверх тела: узел карты, ключ, сама запись и объект ответа
+    static final int ENTRY_OVERHEAD = 256;
+    //Сколько последних инвалидированных ключей помнить: ответ собирается за время одного чтения из базы
+    static final int MAX_TRACKED_INVALIDATIONS = 4096;
+
+    private final ObjectMapper objectMapper;
+    private final Class<V> type;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final LinkedHashMap<Long, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    //Номер последней инвалидации по ключу; ответ, собранный до нее, под этим ключом в кэш не попадает.
+    //Хранятся только последние номера, для забытых ключей действует общая нижняя граница floor.
+    private final LinkedHashMap<Long, Long> invalidatedAt = new LinkedHashMap<>();
+    private long bytes;
+    //Растет при каждой инвалидации, его текущее значение и есть отметка
+    private long invalidations;
+    private long floor;
+
+    public JsonResponseCache(String name, Class<V> type, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                             long maxBytes, Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", name).register(meterRegistry);
+        Gauge.builder("cache.size", this, JsonResponseCache::size).tag("cache", name).register(meterRegistry);
+        Gauge.builder("cache.bytes", this, JsonResponseCache::bytes).tag("cache", name).register(meterRegistry);
+    }
+
+    //Живая запись по ключу без учета в метриках: обращение может состоять из нескольких проверок
+    public synchronized Entry<V> peek(long key) {
+        Entry<V> entry = entries.get(key);
+
+        if (entry != null && entry.expiresAt.isBefore(LocalDateTime.now())) {
+            remove(key);
+            evictions.increment();
+            return null;
+        }
+        return entry;
+    }
+
+    //Итог обращения к кэшу для метрики cache.gets
+    public void recordGet(boolean hit) {
+        (hit ? hits : misses).increment();
+    }
+
+    //Запись с учетом в метриках
+    public Entry<V> get(long key) {
+        Entry<V> entry = peek(key);
+        recordGet(entry != null);
+        return entry;
+    }
+
+    //Отметка перед чтением из базы, ее нужно передать в put
+    public synchronized long ticket() {
+        return invalidations;
+    }
+
+    //Сериализует ответ и сохраняет его, если с момента ticket этот ключ не инвалидировался.
+    //Запись живет не дольше ttl и не дольше момента expiresAt, когда ответ устареет сам по себе.
+    //Готовая запись возвращается в любом случае, чтобы вызывающий не сериализовал ответ повторно.
+    public Entry<V> put(long key, long tag, V value, LocalDateTime expiresAt, long ticket) {
+        LocalDateTime limit = LocalDateTime.now().plus(ttl);
+
+        if (expiresAt == null || expiresAt.isAfter(limit)) {
+            expiresAt = limit;
+        }
+        Entry<V> entry = new Entry<>(tag, value, serialize(value), expiresAt);
+
+        synchronized (this) {
+            if (isStale(key, ticket) || entry.weight() > maxBytes) {
+                return entry;
+            }
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.weight();
+
+            Iterator<Entry<V>> eldest = entries.values().iterator();
+
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return entry;
+    }
+
+    //Независимая копия ответа, прочитанная из тела записи: ее можно изменять, не затрагивая кэш
+    public V copyValue(Entry<V> entry) {
+        try {
+            return objectMapper.readValue(entry.json, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать ответ", e);
+        }
+    }
+
+    public synchronized void invalidate(long... keys) {
+        invalidations++;
+        for (long key : keys) {
+            remove(key);
+            invalidatedAt.remove(key);
+            invalidatedAt.put(key, invalidations);
+        }
+        Iterator<Long> eldest = invalidatedAt.values().iterator();
+
+        while (invalidatedAt.size() > MAX_TRACKED_INVALIDATIONS) {
+            floor = Math.max(floor, eldest.next());
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    //Ключ инвалидирован после отметки; для забытых ключей отметка сравнивается с нижней границей
+    private boolean isStale(long key, long ticket) {
+        return ticket < floor || invalidatedAt.getOrDefault(key, 0L) > ticket;
+    }
+
+    private void remove(long key) {
+        Entry<V> removed = entries.remove(key);
+
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+
+    private byte[] serialize(V value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    //Закэшированный ответ не изменяется после записи, байты тела наружу не копируются.
+    //Значение общее для всех читателей, изменяемая копия - через copyValue.
+    //ETag - хэш тела: он меняется вместе с данными, так как любое их изменение инвалидирует запись.
+    public static final class Entry<V> {
+        private final long tag;
+        private final V value;
+        private final byte[] json;
+        private final String etag;
+        private final LocalDateTime expiresAt;
+
+        public Entry(long tag, V value, byte[] json, LocalDateTime expiresAt) {
+            this.tag = tag;
+            this.value = value;
+            this.json = json;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            this.expiresAt = expiresAt;
+        }
+
+        //Признак, по которому владелец кэша выбирает подходящий вид ответа
+        public long getTag() {
+            return tag;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        //Ответ контроллера: при совпадении If-None-Match Spring сам ответит 304 без тела
+        public ResponseEntity<byte[]> toResponseEntity() {
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(json);
+        }
+
+        private long weight() {
+            return json.length + ENTRY_OVERHEAD;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ru.practicum.shareit.directory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemOwnerView;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+//Справочник живых идентификаторов: пользователи и владельцы вещей.
+//Проверка пользователя из заголовка или владельца вещи обходится без запроса к базе.
+//Если идентификатора в справочнике нет, он ищется в базе и при успехе запоминается.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdDirectory {
+    //Значение для пользователей не нужно, в карте хранится только ключ
+    private static final long PRESENT = 1;
+
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final LongLongHashMap users = new LongLongHashMap(1024);
+    private final LongLongHashMap itemOwners = new LongLongHashMap(1024);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    //Растет при каждом удалении: найденное в базе до удаления в справочник не попадает
+    private long removals;
+
+    //Загрузка всех идентификаторов при старте
+    @PostConstruct
+    public void load() {
+        List<Long> userIds = userRepository.findAllIds();
+        List<ItemOwnerView> items = itemRepository.findAllItemOwners();
+
+        lock.writeLock().lock();
+        try {
+            users.clear();
+            itemOwners.clear();
+            userIds.forEach(userId -> users.put(userId, PRESENT));
+            items.forEach(item -> itemOwners.put(item.getItemId(), item.getOwnerId()));
+            log.info("Справочник идентификаторов загружен: пользователей {}, вещей {}", users.size(),
+                    itemOwners.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Пользователь существует, иначе бросается исключение вызывающего
+    public void requireUser(long userId, Supplier<? extends RuntimeException> notFound) {
+        if (get(users, userId) != LongLongHashMap.NO_VALUE) {
+            return;
+        }
+        long ticket = ticket();
+
+        if (userRepository.findById(userId).isEmpty()) {
+            throw notFound.get();
+        }
+        put(users, userId, PRESENT, ticket);
+    }
+
+    //Владелец вещи, если вещь существует, иначе бросается исключение вызывающего
+    public long requireItemOwner(long itemId, Supplier<? extends RuntimeException> notFound) {
+        long ownerId = get(itemOwners, itemId);
+
+        if (ownerId != LongLongHashMap.NO_VALUE) {
+            return ownerId;
+        }
+        long ticket = ticket();
+
+        ownerId = itemRepository.findById(itemId)
+                .map(item -> item.getOwner().getId())
+                .orElseThrow(notFound);
+        put(itemOwners, itemId, ownerId, ticket);
+        return ownerId;
+    }
+
+    //Новый пользователь
+    public void addUser(long userId) {
+        put(users, userId, PRESENT, ticket());
+    }
+
+    //Пользователь удален
+    public void removeUser(long userId) {
+        remove(users, userId);
+    }
+
+    //Новая или загруженная из базы вещь
+    public void putItem(long itemId, long ownerId) {
+        put(itemOwners, itemId, ownerId, ticket());
+    }
+
+    public int users() {
+        return size(users);
+    }
+
+    public int items() {
+        return size(itemOwners);
+    }
+
+    private long get(LongLongHashMap map, long key) {
+        lock.readLock().lock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long ticket() {
+        lock.readLock().lock();
+        try {
+            return removals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(LongLongHashMap map, long key, long value, long ticket) {
+        lock.writeLock().lock();
+        try {
+            if (ticket == removals) {
+                map.put(key, value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(LongLongHashMap map, long key) {
+        lock.writeLock().lock();
+        try {
+            removals++;
+            map.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int size(LongLongHashMap map) {
+        lock.readLock().lock();
+        try {
+            return map.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
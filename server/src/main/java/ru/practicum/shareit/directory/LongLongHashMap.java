@@ -0,0 +1,133 @@
+package ru.practicum.shareit.directory;
+
+import java.util.Arrays;
+
+//Хэш-таблица с открытой адресацией на двух массивах long: ключи и значения не упаковываются в объекты.
+//Ключ 0 означает пустую ячейку, идентификаторы в базе начинаются с 1.
+//Удаление сдвигает назад следующие элементы цепочки, поэтому надгробия не нужны.
+//Не потокобезопасна, синхронизация - на стороне владельца.
+public class LongLongHashMap {
+    public static final long NO_VALUE = Long.MIN_VALUE;
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public long get(long key) {
+        if (key == EMPTY) {
+            return NO_VALUE;
+        }
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : NO_VALUE;
+    }
+
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Ключ 0 зарезервирован");
+        }
+        int slot = slot(key);
+
+        if (keys[slot] == key) {
+            values[slot] = value;
+            return;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        //заполнение не больше половины: цепочки линейного пробирования остаются короткими
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            return false;
+        }
+        int gap = slot(key);
+
+        if (keys[gap] != key) {
+            return false;
+        }
+        int next = (gap + 1) & mask;
+
+        while (keys[next] != EMPTY) {
+            int ideal = hash(keys[next]) & mask;
+
+            //элемент переносится в дыру, если его идеальная ячейка не лежит между дырой и им самим
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //Занятая массивами память в байтах
+    public long bytes() {
+        return (long) keys.length * Long.BYTES * 2;
+    }
+
+    //Ячейка ключа или первая пустая ячейка его цепочки
+    private int slot(long key) {
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    //Последовательные идентификаторы перемешиваются, чтобы не идти подряд по соседним ячейкам
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
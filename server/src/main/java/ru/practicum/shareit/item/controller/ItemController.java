@@ -2,6 +2,7 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -31,10 +32,13 @@ public class ItemController {
         return itemService.update(userId, id, itemDto);
     }
 
+    //Тело ответа берется из кэша готовым и пишется в поток без повторной сериализации,
+    //при совпадении If-None-Match отдается 304
     @GetMapping("/{itemId}")
-    public ItemDtoBooking getItem(@PathVariable long itemId, @RequestHeader("X-Sharer-User-Id") long userId) {
+    public ResponseEntity<byte[]> getItem(@PathVariable long itemId,
+                                          @RequestHeader("X-Sharer-User-Id") long userId) {
         log.info("Получен GET-запрос к эндпоинту: '/items/itemId' для вещи с id = {}", itemId);
-        return itemService.getItem(itemId, userId);
+        return itemService.getItemResponse(itemId, userId).toResponseEntity();
     }
 
     @GetMapping
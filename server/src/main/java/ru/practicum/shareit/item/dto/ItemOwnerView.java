@@ -0,0 +1,8 @@
+package ru.practicum.shareit.item.dto;
+
+//Вещь и ее владелец
+public interface ItemOwnerView {
+    Long getItemId();
+
+    Long getOwnerId();
+}
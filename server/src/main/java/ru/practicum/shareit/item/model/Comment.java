@@ -19,10 +19,10 @@ public class Comment {
     private Long id;
     @Column(name = "comment_text", nullable = false)
     private String text;
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "item_Id")
     private Item item;
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "author_id")
     private User author;
     @Column(name = "created")
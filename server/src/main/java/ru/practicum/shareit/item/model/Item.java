@@ -1,5 +1,6 @@
 package ru.practicum.shareit.item.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
@@ -11,8 +12,16 @@ import javax.persistence.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@NamedEntityGraph(name = Item.DETAILS_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("owner"),
+                @NamedAttributeNode(value = "itemRequest", subgraph = "itemRequest")},
+        subgraphs = @NamedSubgraph(name = "itemRequest", attributeNodes = @NamedAttributeNode("requestor")))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "items", schema = "public")
 public class Item {
+    public static final String DETAILS_GRAPH = "Item.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "item_id")
@@ -23,10 +32,10 @@ public class Item {
     private String description;
     @Column(name = "available", nullable = false)
     private Boolean available;
-    @OneToOne(optional = false)
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "owner_id")
     private User owner;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "request_id")
     private ItemRequest itemRequest;
 }
\ No newline at end of file
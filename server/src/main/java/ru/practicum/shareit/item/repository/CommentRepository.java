@@ -1,10 +1,24 @@
 package ru.practicum.shareit.item.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    @EntityGraph(attributePaths = "author")
     List<Comment> findAllByItemId(long id);
+
+    @Query("select c from Comment c " +
+            "join fetch c.author " +
+            "where c.item.id in ?1 " +
+            "order by c.id")
+    List<Comment> findAllByItemIdIn(Collection<Long> itemIds);
+
+    //Вещи, в ответах по которым показано имя автора комментария
+    @Query("select distinct c.item.id from Comment c where c.author.id = ?1")
+    List<Long> findItemIdsByAuthorId(long authorId);
 }
\ No newline at end of file
@@ -1,19 +1,53 @@
 package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.item.dto.ItemOwnerView;
 import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
-    @Query("select i from Item i " +
-            "where upper(i.name) like upper(concat('%', ?1, '%')) " +
-            " or upper(i.description) like upper(concat('%', ?1, '%'))")
-    List<Item> search(String text, Pageable pageable);
+    @Override
+    @EntityGraph(Item.DETAILS_GRAPH)
+    Optional<Item> findById(Long id);
 
+    //Выражение совпадает с индексом items_search_idx, иначе PostgreSQL не сможет его использовать
+    @Query(value = "select * from items i " +
+            "where i.available " +
+            "and (setweight(to_tsvector('simple', i.item_name), 'A') " +
+            "|| setweight(to_tsvector('simple', i.description), 'B')) @@ to_tsquery('simple', ?1) " +
+            "order by ts_rank(setweight(to_tsvector('simple', i.item_name), 'A') " +
+            "|| setweight(to_tsvector('simple', i.description), 'B'), to_tsquery('simple', ?1)) desc, i.item_id",
+            nativeQuery = true)
+    List<Item> searchFullText(String query, Pageable pageable);
+
+    //Поиск подстроки полным просмотром, пока поисковый индекс в памяти не помещается в бюджет.
+    //Шаблон уже в нижнем регистре, служебные символы экранированы '!'. Совпадения в названии идут первыми.
+    @Query("select i from Item i where i.available = true " +
+            "and (lower(i.name) like ?1 escape '!' or lower(i.description) like ?1 escape '!') " +
+            "order by case when lower(i.name) like ?1 escape '!' then 0 else 1 end, i.id")
+    List<Item> searchBySubstring(String pattern, Pageable pageable);
+
+    //Условие по внешнему ключу без соединения с requests, чтобы работал индекс items_request_idx
+    @Query("select i from Item i where i.itemRequest.id = ?1")
     List<Item> findAllByItemRequestId(Long itemRequestId);
 
+    //Вещи сразу для страницы запросов, группируются по запросу в сервисе
+    @Query("select i from Item i where i.itemRequest.id in ?1 order by i.id")
+    List<Item> findAllByItemRequestIdIn(Collection<Long> itemRequestIds);
+
     List<Item> findByOwnerId(Long userId, Pageable pageable);
-}
\ No newline at end of file
+
+    //Запросы, на которые уже ответили вещью
+    @Query("select distinct i.itemRequest.id from Item i where i.itemRequest.id is not null")
+    List<Long> findAnsweredRequestIds();
+
+    //Владельцы всех вещей для справочника в памяти, без загрузки самих вещей
+    @Query("select i.id as itemId, i.owner.id as ownerId from Item i")
+    List<ItemOwnerView> findAllItemOwners();
+}
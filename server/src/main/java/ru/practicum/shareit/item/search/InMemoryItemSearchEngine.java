@@ -0,0 +1,449 @@
+package ru.practicum.shareit.item.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.directory.LongLongHashMap;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//Триграммный индекс в памяти процесса: поиск подстроки в названии или описании без обращения к базе.
+//Документы хранятся по порядковым номерам в массивах, списки вхождений триграмм - отсортированные int[].
+//Оценка занятой памяти ведется при каждом изменении и ограничена shareit.search.max-bytes. Если индекс не помещается
+//в бюджет, он освобождается целиком и поиск идет подстрокой в базе. Раз в shareit.search.rebuild-interval индекс
+//строится заново и возвращается в память, если занимает не больше 90% бюджета: запас не дает ему сразу снова
+//переполниться.
+//Метрики: search.index.items, search.index.trigrams, search.index.postings, search.index.bytes
+//и search.index.overflow (1, пока поиск идет в базе).
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "memory", matchIfMissing = true)
+public class InMemoryItemSearchEngine implements ItemSearchEngine {
+    //Ширина колонок item_name и description: не больше 2 * 253 триграмм на вещь
+    public static final int MAX_FIELD_LENGTH = 255;
+    private static final int GRAM = 3;
+    private static final long NO_REQUEST = 0;
+    //Бит над тремя 16-битными символами: код триграммы никогда не равен пустому ключу 0 таблицы
+    private static final long GRAM_MARKER = 1L << 48;
+    //Оценка накладных расходов: заголовки объектов и массивов, строка вместе с ее массивом символов
+    private static final int OBJECT_BYTES = 16;
+    private static final int STRING_BYTES = 40;
+    private static final char LIKE_ESCAPE = '!';
+    private static final int LOW_WATER_PERCENT = 90;
+
+    private final ItemRepository itemRepository;
+    private final long maxBytes;
+    private final ScheduledExecutorService rebuilder;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TrigramPostingsMap postings;
+    private LongLongHashMap docsById;
+    private BitSet available;
+    private long[] ids;
+    private long[] requestIds;
+    private String[] names;
+    private String[] descriptions;
+    private int docCount;
+    private long postingEntries;
+    //Списки вхождений и строки документов; массивы и таблицы считаются по их текущей длине
+    private long postingBytes;
+    private long documentBytes;
+    private boolean overflow;
+    //Вещи, измененные во время перестройки: применяются поверх прочитанных из базы
+    private List<Item> pending;
+
+    public InMemoryItemSearchEngine(ItemRepository itemRepository, MeterRegistry meterRegistry,
+                                    @Value("${shareit.search.max-bytes:256MB}") DataSize maxBytes,
+                                    @Value("${shareit.search.rebuild-interval:10m}") Duration rebuildInterval) {
+        this.itemRepository = itemRepository;
+        this.maxBytes = maxBytes.toBytes();
+        clear();
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-search-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuildIfOverflow, rebuildInterval.toMillis(),
+                rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("search.index.items", this, engine -> engine.getStats().getItems())
+                .register(meterRegistry);
+        Gauge.builder("search.index.trigrams", this, engine -> engine.getStats().getTrigrams())
+                .register(meterRegistry);
+        Gauge.builder("search.index.postings", this, engine -> engine.getStats().getPostingEntries())
+                .register(meterRegistry);
+        Gauge.builder("search.index.bytes", this, engine -> engine.getStats().getEstimatedBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("search.index.overflow", this, engine -> engine.isOverflow() ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    //Построение индекса по всем вещам при старте
+    @PostConstruct
+    public void rebuild() {
+        rebuild(maxBytes);
+    }
+
+    //Повторная попытка после переполнения, запускается по расписанию
+    public void rebuildIfOverflow() {
+        if (isOverflow()) {
+            try {
+                rebuild(maxBytes / 100 * LOW_WATER_PERCENT);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось перестроить поисковый индекс вещей: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuilder.shutdownNow();
+    }
+
+    @Override
+    public void index(Item item) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(item);
+            }
+            if (!overflow) {
+                put(item, maxBytes);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ItemDto> search(String text, int from, int size) {
+        String query = lowerCase(text);
+
+        //запрос к базе идет без блокировки, чтобы не задерживать индексацию
+        if (isOverflow()) {
+            return itemRepository.searchBySubstring(likePattern(query), PageRequest.of(from / size, size))
+                    .stream()
+                    .map(ItemMapper::toItemDto)
+                    .collect(Collectors.toList());
+        }
+        lock.readLock().lock();
+        try {
+            List<int[]> matches = new ArrayList<>();
+
+            for (int doc : candidates(query)) {
+                if (available.get(doc)) {
+                    int score = score(doc, query);
+                    if (score > 0) {
+                        matches.add(new int[]{doc, score});
+                    }
+                }
+            }
+            matches.sort(Comparator.<int[]>comparingInt(match -> -match[1]).thenComparingLong(match -> ids[match[0]]));
+
+            return matches.stream()
+                    .skip((long) (from / size) * size)
+                    .limit(size)
+                    .map(match -> toItemDto(match[0]))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchIndexStats getStats() {
+        lock.readLock().lock();
+        try {
+            return new SearchIndexStats(docCount, postings.size(), postingEntries, estimatedBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Индекс не поместился в бюджет, поиск идет в базе
+    public boolean isOverflow() {
+        lock.readLock().lock();
+        try {
+            return overflow;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Вещи читаются из базы без блокировки, изменения за это время копятся в pending
+    private void rebuild(long limit) {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Item> items;
+
+        try {
+            items = itemRepository.findAll();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            clear();
+            overflow = false;
+            if (putAll(items, limit)) {
+                putAll(pending, limit);
+            }
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс вещей построен: {}", getStats());
+    }
+
+    private boolean putAll(List<Item> items, long limit) {
+        for (Item item : items) {
+            if (!put(item, limit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Счетчики ведутся при изменениях, поэтому опрос метрик не обходит индекс
+    private long estimatedBytes() {
+        return (long) ids.length * (Long.BYTES * 2 + Integer.BYTES * 2) + available.size() / Byte.SIZE
+                + docsById.bytes() + postings.bytes() + postingBytes + documentBytes;
+    }
+
+    //Кандидаты - пересечение списков всех триграмм запроса. Для запросов короче триграммы - все документы.
+    private int[] candidates(String query) {
+        long[] grams = trigrams(query);
+
+        if (grams.length == 0) {
+            return IntStream.range(0, docCount).toArray();
+        }
+        TrigramPostings[] lists = new TrigramPostings[grams.length];
+
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(TrigramPostings::size));
+        int[] result = lists[0].toArray();
+        int count = result.length;
+
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = lists[i].retainIn(result, count);
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    //Совпадение в названии весит больше, чем в описании; 0 - ложное срабатывание триграмм
+    private int score(int doc, String query) {
+        if (lowerCase(names[doc]).contains(query)) {
+            return 2;
+        }
+        return lowerCase(descriptions[doc]).contains(query) ? 1 : 0;
+    }
+
+    //false, если индекс превысил limit и был освобожден
+    private boolean put(Item item, long limit) {
+        if (item.getId() == null) {
+            return true;
+        }
+        long existing = docsById.get(item.getId());
+        int doc = existing == LongLongHashMap.NO_VALUE ? newDoc(item.getId()) : (int) existing;
+        long[] oldGrams = existing == LongLongHashMap.NO_VALUE ? new long[0] : documentTrigrams(doc);
+
+        documentBytes -= documentBytes(doc);
+        names[doc] = item.getName();
+        descriptions[doc] = item.getDescription();
+        requestIds[doc] = item.getItemRequest() == null ? NO_REQUEST : item.getItemRequest().getId();
+        available.set(doc, Boolean.TRUE.equals(item.getAvailable()));
+
+        documentBytes += documentBytes(doc);
+
+        long[] newGrams = documentTrigrams(doc);
+        int i = 0;
+        int j = 0;
+
+        //оба массива отсортированы: меняются только списки исчезнувших и появившихся триграмм
+        while (i < oldGrams.length || j < newGrams.length) {
+            if (j == newGrams.length || (i < oldGrams.length && oldGrams[i] < newGrams[j])) {
+                removePosting(oldGrams[i++], doc);
+            } else if (i == oldGrams.length || oldGrams[i] > newGrams[j]) {
+                addPosting(newGrams[j++], doc);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        if (estimatedBytes() > limit) {
+            log.warn("Поисковый индекс вещей превысил бюджет {} байт: {}. Поиск переключен на базу до перестройки",
+                    limit, getStats());
+            clear();
+            overflow = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void clear() {
+        postings = new TrigramPostingsMap();
+        docsById = new LongLongHashMap(16);
+        available = new BitSet();
+        ids = new long[16];
+        requestIds = new long[16];
+        names = new String[16];
+        descriptions = new String[16];
+        docCount = 0;
+        postingEntries = 0;
+        postingBytes = 0;
+        documentBytes = 0;
+    }
+
+    private int newDoc(long id) {
+        if (docCount == ids.length) {
+            int capacity = docCount + (docCount >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            requestIds = Arrays.copyOf(requestIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        ids[docCount] = id;
+        docsById.put(id, docCount);
+        return docCount++;
+    }
+
+    private void addPosting(long gram, int doc) {
+        TrigramPostings trigramPostings = postings.getOrCreate(gram);
+        long before = trigramPostings.size() == 0 ? 0 : postingBytes(trigramPostings);
+
+        trigramPostings.add(doc);
+        postingEntries++;
+        postingBytes += postingBytes(trigramPostings) - before;
+    }
+
+    private void removePosting(long gram, int doc) {
+        TrigramPostings trigramPostings = postings.get(gram);
+
+        if (trigramPostings != null) {
+            postingBytes -= postingBytes(trigramPostings);
+            trigramPostings.remove(doc);
+            postingEntries--;
+            if (trigramPostings.size() == 0) {
+                postings.remove(gram);
+            } else {
+                postingBytes += postingBytes(trigramPostings);
+            }
+        }
+    }
+
+    private static long postingBytes(TrigramPostings trigramPostings) {
+        return OBJECT_BYTES * 2 + (long) trigramPostings.capacity() * Integer.BYTES;
+    }
+
+    private long documentBytes(int doc) {
+        return (names[doc] == null ? 0 : STRING_BYTES + (long) names[doc].length() * Character.BYTES)
+                + (descriptions[doc] == null ? 0 : STRING_BYTES + (long) descriptions[doc].length() * Character.BYTES);
+    }
+
+    private long[] documentTrigrams(int doc) {
+        long[] nameGrams = trigrams(lowerCase(names[doc]));
+        long[] descriptionGrams = trigrams(lowerCase(descriptions[doc]));
+        long[] grams = Arrays.copyOf(nameGrams, nameGrams.length + descriptionGrams.length);
+
+        System.arraycopy(descriptionGrams, 0, grams, nameGrams.length, descriptionGrams.length);
+        return distinctSorted(grams);
+    }
+
+    //Триграмма кодируется тремя символами по 16 бит в одном long
+    private static long[] trigrams(String text) {
+        int length = Math.min(text.length(), MAX_FIELD_LENGTH);
+
+        if (length < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[length - GRAM + 1];
+
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = GRAM_MARKER | ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16)
+                    | text.charAt(i + 2);
+        }
+        return distinctSorted(grams);
+    }
+
+    private static long[] distinctSorted(long[] grams) {
+        if (grams.length == 0) {
+            return grams;
+        }
+        Arrays.sort(grams);
+        int count = 1;
+
+        for (int i = 1; i < grams.length; i++) {
+            if (grams[i] != grams[count - 1]) {
+                grams[count++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, count);
+    }
+
+    //Посимвольное приведение сохраняет длину строки, поэтому триграммы запроса и документа совпадают
+    private static String lowerCase(String text) {
+        if (text == null) {
+            return "";
+        }
+        char[] chars = text.toCharArray();
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    //Запрос ищется как подстрока: служебные символы LIKE экранируются
+    private static String likePattern(String query) {
+        StringBuilder pattern = new StringBuilder("%");
+
+        for (char c : query.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    private ItemDto toItemDto(int doc) {
+        return new ItemDto(ids[doc], names[doc], descriptions[doc], available.get(doc),
+                requestIds[doc] == NO_REQUEST ? null : requestIds[doc]);
+    }
+}
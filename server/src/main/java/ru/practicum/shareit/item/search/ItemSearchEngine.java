@@ -0,0 +1,15 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+//Поиск доступных вещей по тексту с ранжированием по релевантности
+public interface ItemSearchEngine {
+    List<ItemDto> search(String text, int from, int size);
+
+    //Вызывается после сохранения вещи, если движку нужно обновить собственный индекс
+    default void index(Item item) {
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//Полнотекстовый поиск на стороне PostgreSQL по GIN-индексу items_search_idx (schema-postgres.sql)
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "postgres")
+public class PostgresItemSearchEngine implements ItemSearchEngine {
+    private final ItemRepository itemRepository;
+
+    @Override
+    public List<ItemDto> search(String text, int from, int size) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        //каждое слово запроса ищется как префикс слова вещи
+        String query = tokens.stream().map(token -> token + ":*").collect(Collectors.joining(" & "));
+
+        return itemRepository.searchFullText(query, PageRequest.of(from / size, size))
+                .stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+//Размер поискового индекса в памяти. Байты - оценка по размерам массивов и строк, без учета выравнивания JVM.
+@Getter
+@ToString
+@AllArgsConstructor
+public class SearchIndexStats {
+    private final int items;
+    private final int trigrams;
+    private final long postingEntries;
+    private final long estimatedBytes;
+
+    public long getBytesPerItem() {
+        return items == 0 ? 0 : estimatedBytes / items;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class SearchTokenizer {
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    //Разбиение текста на слова из букв и цифр в нижнем регистре
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+}
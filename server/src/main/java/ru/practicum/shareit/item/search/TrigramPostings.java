@@ -0,0 +1,65 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.Arrays;
+
+//Отсортированный список номеров документов, содержащих одну триграмму
+class TrigramPostings {
+    private int[] docs = new int[2];
+    private int size;
+
+    void add(int doc) {
+        int position = Arrays.binarySearch(docs, 0, size, doc);
+
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+        }
+        System.arraycopy(docs, position, docs, position + 1, size - position);
+        docs[position] = doc;
+        size++;
+    }
+
+    void remove(int doc) {
+        int position = Arrays.binarySearch(docs, 0, size, doc);
+
+        if (position >= 0) {
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            size--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return docs.length;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(docs, size);
+    }
+
+    //Оставляет в candidates только документы из этого списка, возвращает их количество
+    int retainIn(int[] candidates, int count) {
+        int kept = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < count && j < size) {
+            if (candidates[i] < docs[j]) {
+                i++;
+            } else if (candidates[i] > docs[j]) {
+                j++;
+            } else {
+                candidates[kept++] = candidates[i];
+                i++;
+                j++;
+            }
+        }
+        return kept;
+    }
+}
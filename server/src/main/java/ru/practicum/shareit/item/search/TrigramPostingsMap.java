@@ -0,0 +1,65 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.directory.LongLongHashMap;
+
+import java.util.Arrays;
+
+//Списки вхождений по коду триграммы. Код триграммы ведет в LongLongHashMap справочника к номеру списка в массиве,
+//номера опустевших списков используются повторно. Коды триграмм не равны зарезервированному ключу 0.
+//Не потокобезопасна, синхронизация - на стороне индекса.
+class TrigramPostingsMap {
+    //Ссылка на список в массиве без сжатых указателей занимает 8 байт
+    private static final int REFERENCE_BYTES = 8;
+
+    private final LongLongHashMap slots = new LongLongHashMap(16);
+    private TrigramPostings[] lists = new TrigramPostings[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int usedSlots;
+
+    TrigramPostings get(long gram) {
+        long slot = slots.get(gram);
+        return slot == LongLongHashMap.NO_VALUE ? null : lists[(int) slot];
+    }
+
+    //Список триграммы, новый пустой список появляется в таблице сразу
+    TrigramPostings getOrCreate(long gram) {
+        TrigramPostings postings = get(gram);
+
+        if (postings != null) {
+            return postings;
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : usedSlots++;
+
+        if (slot == lists.length) {
+            lists = Arrays.copyOf(lists, slot * 2);
+        }
+        postings = new TrigramPostings();
+        lists[slot] = postings;
+        slots.put(gram, slot);
+        return postings;
+    }
+
+    void remove(long gram) {
+        long slot = slots.get(gram);
+
+        if (slot == LongLongHashMap.NO_VALUE) {
+            return;
+        }
+        slots.remove(gram);
+        lists[(int) slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = (int) slot;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    //Занятая таблицей и массивами память в байтах, без самих списков
+    long bytes() {
+        return slots.bytes() + (long) lists.length * REFERENCE_BYTES + (long) freeSlots.length * Integer.BYTES;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.item.service;
 
+import ru.practicum.shareit.cache.JsonResponseCache;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoBooking;
@@ -13,6 +14,8 @@ public interface ItemService {
 
     ItemDtoBooking getItem(Long itemId, Long userId);
 
+    JsonResponseCache.Entry<ItemDtoBooking> getItemResponse(Long itemId, Long userId);
+
     List<ItemDtoBooking> getAllItemsByUser(Long userId, Integer from, Integer size);
 
     List<ItemDto> search(String text, Integer from, Integer size);
@@ -5,10 +5,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import ru.practicum.shareit.booking.dto.BookingDtoForItem;
+import ru.practicum.shareit.booking.dto.BookingDtoForItemView;
 import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDto;
@@ -20,35 +23,45 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.request.service.ItemRequestViewCache;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+    private static final Pageable FIRST = PageRequest.of(0, 1);
+
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemViewCache itemViewCache;
+    private final ItemRequestViewCache itemRequestViewCache;
+    private final ItemRequestService itemRequestService;
+    private final IdDirectory idDirectory;
 
     //Создание вещи
     @Override
     public ItemDto create(Long userId, ItemDto itemDto) {
         Item item = ItemMapper.toItem(itemDto);
 
-        User user = userRepository.findById(userId).orElseThrow(() ->
-                new NotFoundException("Неверный идентификатор пользователя"));
-
-        item.setOwner(user);
+        //Владелец нужен вещи только как внешний ключ: после проверки по справочнику ссылка берется без запроса
+        idDirectory.requireUser(userId, () -> new NotFoundException("Неверный идентификатор пользователя"));
+        item.setOwner(userRepository.getReferenceById(userId));
 
         Long requestId = itemDto.getRequestId();
         if (requestId != null) {
@@ -57,18 +70,27 @@ public class ItemServiceImpl implements ItemService {
         }
 
         itemRepository.save(item);
+        idDirectory.putItem(item.getId(), userId);
+        itemSearchEngine.index(item);
+        if (requestId != null) {
+            itemRequestViewCache.invalidate(requestId);
+        }
+        itemRequestService.notifyItemCreated(item);
         return ItemMapper.toItemDto(item);
     }
 
     //Обновление вещи
     @Override
     public ItemDto update(Long userId, Long itemId, ItemDto itemDto) {
-        Item item = itemRepository.findById(itemId).orElseThrow(() ->
-                new NotFoundException("Неверный идентификатор вещи"));
+        //Чужая вещь отклоняется по справочнику, до загрузки из базы
+        long ownerId = idDirectory.requireItemOwner(itemId, () -> new NotFoundException("Неверный идентификатор вещи"));
 
-        if (!item.getOwner().getId().equals(userId)) {
+        if (ownerId != userId) {
             throw new NotFoundException("Нельзя изменить чужую вещь");
         }
+        Item item = itemRepository.findById(itemId).orElseThrow(() ->
+                new NotFoundException("Неверный идентификатор вещи"));
+
         if (itemDto.getName() != null) {
             item.setName(itemDto.getName());
         }
@@ -79,31 +101,64 @@ public class ItemServiceImpl implements ItemService {
             item.setAvailable(itemDto.getAvailable());
         }
         itemRepository.save(item);
+        itemSearchEngine.index(item);
+        itemViewCache.invalidate(itemId);
+        if (item.getItemRequest() != null) {
+            itemRequestViewCache.invalidate(item.getItemRequest().getId());
+        }
         return ItemMapper.toItemDto(item);
     }
 
-    //Получение вещи
+    //Получение вещи: копия, чтобы изменения вызывающего не попали в кэш
     @Override
     public ItemDtoBooking getItem(Long itemId, Long userId) {
+        return itemViewCache.copyValue(itemView(itemId, userId));
+    }
+
+    //Получение вещи в виде готового тела ответа с ETag
+    @Override
+    public JsonResponseCache.Entry<ItemDtoBooking> getItemResponse(Long itemId, Long userId) {
+        return itemView(itemId, userId);
+    }
+
+    //Ответ из кэша или собранный заново
+    private JsonResponseCache.Entry<ItemDtoBooking> itemView(Long itemId, Long userId) {
+        JsonResponseCache.Entry<ItemDtoBooking> cached = itemViewCache.get(itemId, userId);
+
+        if (cached != null) {
+            return cached;
+        }
+        long ticket = itemViewCache.ticket();
+
         Item item = itemRepository.findById(itemId).orElseThrow(() ->
                 new NotFoundException("Неверный идентификатор вещи"));
+        idDirectory.putItem(itemId, item.getOwner().getId());
 
         ItemDtoBooking itemDtoBooking = ItemMapper.toItemDtoWithBooking(item);
+        boolean ownerView = item.getOwner().getId().equals(userId);
+        //вид владельца устаревает, когда начинается следующая бронь
+        LocalDateTime expiresAt = null;
 
-        if (item.getOwner().getId().equals(userId)) {
+        if (ownerView) {
             LocalDateTime now = LocalDateTime.now();
             BookingDtoForItem lastBooking = bookingRepository
-                    .findTopByItemOwnerIdAndStatusAndStartBeforeOrderByEndDesc(userId, Status.APPROVED, now)
+                    .findItemBookingsStartedBefore(itemId, Status.APPROVED, now, FIRST)
+                    .stream()
+                    .findFirst()
                     .map(BookingMapper::toBookingDtoForItem)
                     .orElse(null);
 
-            BookingDtoForItem nextBooking = bookingRepository
-                    .findTopByItemOwnerIdAndStatusAndStartAfterOrderByStartAsc(userId, Status.APPROVED, now)
-                    .map(BookingMapper::toBookingDtoForItem)
+            Booking nextBooking = bookingRepository
+                    .findItemBookingsStartingAfter(itemId, Status.APPROVED, now, FIRST)
+                    .stream()
+                    .findFirst()
                     .orElse(null);
 
             itemDtoBooking.setLastBooking(lastBooking);
-            itemDtoBooking.setNextBooking(nextBooking);
+            if (nextBooking != null) {
+                itemDtoBooking.setNextBooking(BookingMapper.toBookingDtoForItem(nextBooking));
+                expiresAt = nextBooking.getStart();
+            }
         }
         List<Comment> comments = commentRepository.findAllByItemId(itemId);
 
@@ -113,7 +168,7 @@ public class ItemServiceImpl implements ItemService {
                     .collect(Collectors.toList())
             );
         }
-        return itemDtoBooking;
+        return itemViewCache.put(itemId, item.getOwner().getId(), ownerView, itemDtoBooking, expiresAt, ticket);
     }
 
     //Получение всех вещей пользователя
@@ -123,35 +178,37 @@ public class ItemServiceImpl implements ItemService {
         int page = from / size;
         Pageable pageable = PageRequest.of(page, size);
 
-        List<Item> userItemList = new ArrayList<>(itemRepository.findByOwnerId(userId, pageable));
+        List<Item> userItemList = itemRepository.findByOwnerId(userId, pageable);
+
+        if (userItemList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> itemIds = userItemList.stream().map(Item::getId).collect(Collectors.toList());
+
+        Map<Long, BookingDtoForItem> lastBookings = new HashMap<>();
+        Map<Long, BookingDtoForItem> nextBookings = new HashMap<>();
+
+        for (BookingDtoForItemView view : bookingRepository.findLastAndNextBookings(itemIds, LocalDateTime.now())) {
+            Map<Long, BookingDtoForItem> target = view.getLast() ? lastBookings : nextBookings;
+            target.put(view.getItemId(), BookingMapper.toBookingDtoForItem(view));
+        }
+
+        Map<Long, List<CommentDto>> comments = commentRepository.findAllByItemIdIn(itemIds)
+                .stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId(),
+                        Collectors.mapping(CommentMapper::toCommentDto, Collectors.toList())));
 
         return userItemList.stream()
                 .map(ItemMapper::toItemDtoWithBooking)
                 .peek(item -> {
-                    List<Booking> bookings = bookingRepository.findBookingByItemIdOrderByStartAsc(item.getId());
-                    LocalDateTime now = LocalDateTime.now();
-                    BookingDtoForItem lastBooking = null;
-                    BookingDtoForItem nextBooking = null;
-
-                    for (Booking booking : bookings) {
-                        if (booking.getEnd().isBefore(now)) {
-                            lastBooking = BookingMapper.toBookingDtoForItem(booking);
-                        } else if (booking.getStart().isAfter(now)) {
-                            nextBooking = BookingMapper.toBookingDtoForItem(booking);
-                            break;
-                        }
-                    }
-                    item.setLastBooking(lastBooking);
-                    item.setNextBooking(nextBooking);
+                    item.setLastBooking(lastBookings.get(item.getId()));
+                    item.setNextBooking(nextBookings.get(item.getId()));
 
-                    List<Comment> comments = commentRepository.findAllByItemId(item.getId());
+                    List<CommentDto> itemComments = comments.get(item.getId());
 
-                    if (!comments.isEmpty()) {
-                        item.setComments(comments
-                                .stream().map(CommentMapper::toCommentDto)
-                                .collect(Collectors.toList()));
+                    if (itemComments != null) {
+                        item.setComments(itemComments);
                     }
-
                 })
                 .sorted(Comparator.comparing(ItemDtoBooking::getId))
                 .collect(Collectors.toList());
@@ -160,25 +217,16 @@ public class ItemServiceImpl implements ItemService {
     //Поиск вещи
     @Override
     public List<ItemDto> search(String text, Integer from, Integer size) {
-        //преобразование параметров
-        int page = from / size;
-        Pageable pageable = PageRequest.of(page, size);
-
-        if (!text.isBlank()) {
-            return itemRepository.search(text, pageable)
-                    .stream()
-                    .filter(Item::getAvailable)
-                    .map(ItemMapper::toItemDto)
-                    .collect(Collectors.toList());
+        if (text.isBlank()) {
+            return Collections.emptyList();
         }
-        return Collections.emptyList();
+        return itemSearchEngine.search(text, from, size);
     }
 
     //Добавление комментария
     @Override
     public CommentDto createComment(Long userId, Long itemId, CommentDto commentDto) {
-        Item item = itemRepository.findById(itemId).orElseThrow(() ->
-                new NotFoundException("Неверный идентификатор вещи"));
+        idDirectory.requireItemOwner(itemId, () -> new NotFoundException("Неверный идентификатор вещи"));
 
         User user = userRepository.findById(userId).orElseThrow(() ->
                 new NotFoundException("Неверный идентификатор пользователя"));
@@ -190,10 +238,11 @@ public class ItemServiceImpl implements ItemService {
                 .orElseThrow(() -> new ValidationException("Пользователь с id = " + userId + " не брал в аренду вещь с id = " + itemId));
 
         Comment comment = CommentMapper.toComment(commentDto);
-        comment.setItem(item);
+        comment.setItem(itemRepository.getReferenceById(itemId));
         comment.setAuthor(user);
 
         commentRepository.save(comment);
+        itemViewCache.invalidate(itemId);
         return CommentMapper.toCommentDto(comment);
     }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.item.dto.ItemDtoBooking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+//Кэш собранных ответов GET /items/{id}: отдельные записи для владельца (с последней и следующей бронью)
+//и для остальных пользователей. Вместе с ответом хранится его тело в JSON, объем ограничен бюджетом в байтах.
+@Component
+public class ItemViewCache {
+    public static final String NAME = "items";
+
+    private final JsonResponseCache<ItemDtoBooking> cache;
+
+    public ItemViewCache(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                         @Value("${shareit.item-cache.max-bytes:32MB}") DataSize maxBytes,
+                         @Value("${shareit.item-cache.ttl:60s}") Duration ttl) {
+        this.cache = new JsonResponseCache<>(NAME, ItemDtoBooking.class, meterRegistry, objectMapper, maxBytes.toBytes(), ttl);
+    }
+
+    //Ответ для пользователя: вид владельца, если пользователь владеет вещью, иначе общий вид
+    public JsonResponseCache.Entry<ItemDtoBooking> get(long itemId, long userId) {
+        JsonResponseCache.Entry<ItemDtoBooking> ownerView = cache.peek(key(itemId, true));
+
+        if (ownerView != null && ownerView.getTag() == userId) {
+            cache.recordGet(true);
+            return ownerView;
+        }
+        JsonResponseCache.Entry<ItemDtoBooking> publicView = cache.peek(key(itemId, false));
+
+        if (publicView != null && publicView.getTag() != userId) {
+            cache.recordGet(true);
+            return publicView;
+        }
+        cache.recordGet(false);
+        return null;
+    }
+
+    //Отметка перед чтением из базы, ее нужно передать в put
+    public long ticket() {
+        return cache.ticket();
+    }
+
+    //Запись живет не дольше ttl и не дольше момента expiresAt, когда ответ устареет сам по себе
+    public JsonResponseCache.Entry<ItemDtoBooking> put(long itemId, long ownerId, boolean ownerView,
+                                                       ItemDtoBooking itemDto, LocalDateTime expiresAt,
+                                                       long ticket) {
+        return cache.put(key(itemId, ownerView), ownerId, itemDto, expiresAt, ticket);
+    }
+
+    //Изменились сама вещь или комментарии: устарели оба вида
+    public void invalidate(long itemId) {
+        cache.invalidate(key(itemId, true), key(itemId, false));
+    }
+
+    //Изменились брони вещи: устарел только вид владельца
+    public void invalidateOwnerView(long itemId) {
+        cache.invalidate(key(itemId, true));
+    }
+
+    //Копия ответа, которую вызывающий может изменять
+    public ItemDtoBooking copyValue(JsonResponseCache.Entry<ItemDtoBooking> entry) {
+        return cache.copyValue(entry);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long bytes() {
+        return cache.bytes();
+    }
+
+    private static long key(long itemId, boolean ownerView) {
+        return itemId << 1 | (ownerView ? 1 : 0);
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+//Ответ со страницей списка, который листается по курсору: у бронирований и пользователей
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CursorPage {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    //Для полной страницы в заголовке отдается курсор следующей, неполная страница последняя.
+    //Размер страницы должен быть положительным: его проверяет сервис до выборки
+    public static <T> ResponseEntity<List<T>> withNextCursor(List<T> page, int size, Function<T, String> cursorOf) {
+        if (page.size() < size) {
+            return ResponseEntity.ok(page);
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, cursorOf.apply(page.get(page.size() - 1)))
+                .body(page);
+    }
+}
@@ -2,8 +2,12 @@ package ru.practicum.shareit.request.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItems;
 import ru.practicum.shareit.request.service.ItemRequestService;
@@ -39,9 +43,23 @@ public class ItemRequestController {
         return itemRequestService.getAllWithPageable(userId, from, size);
     }
 
+    //Поток событий по запросам пользователя: ответы и подходящие вещи
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Подписка на события запросов пользователя id={}", userId);
+        return itemRequestService.subscribe(userId);
+    }
+
+    @GetMapping("/{requestId}/suggestions")
+    public List<ItemDto> getSuggestions(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                        @PathVariable Long requestId) {
+        return itemRequestService.getSuggestions(userId, requestId);
+    }
+
+    //При совпадении If-None-Match отдается 304 без тела
     @GetMapping("/{requestId}")
-    public ItemRequestDtoWithItems getItemRequest(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                                  @PathVariable Long requestId) {
-        return itemRequestService.getItemRequest(userId, requestId);
+    public ResponseEntity<byte[]> getItemRequest(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                 @PathVariable Long requestId) {
+        return itemRequestService.getItemRequestResponse(userId, requestId).toResponseEntity();
     }
 }
\ No newline at end of file
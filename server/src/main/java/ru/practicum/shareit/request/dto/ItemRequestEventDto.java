@@ -0,0 +1,17 @@
+package ru.practicum.shareit.request.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.request.enums.ItemRequestEventType;
+
+//Событие для автора запроса: ответ на запрос или вещь, подходящая под его описание
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemRequestEventDto {
+    private ItemRequestEventType type;
+    private Long requestId;
+    private ItemDto item;
+}
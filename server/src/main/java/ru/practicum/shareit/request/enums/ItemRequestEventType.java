@@ -0,0 +1,6 @@
+package ru.practicum.shareit.request.enums;
+
+public enum ItemRequestEventType {
+    ANSWER,
+    SUGGESTION
+}
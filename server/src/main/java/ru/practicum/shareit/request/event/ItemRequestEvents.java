@@ -0,0 +1,96 @@
+package ru.practicum.shareit.request.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.request.dto.ItemRequestEventDto;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//Подписки авторов запросов на события по Server-Sent Events: у пользователя может быть несколько потоков.
+//События отправляются в отдельном потоке, чтобы медленный клиент не задерживал создание вещи. Поток один,
+//поэтому события приходят в порядке публикации. Очередь ограничена queue-capacity, лишние события отбрасываются.
+@Slf4j
+@Component
+public class ItemRequestEvents {
+    private final Duration timeout;
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    public ItemRequestEvents(@Value("${shareit.request-events.timeout:30m}") Duration timeout,
+                             @Value("${shareit.request-events.queue-capacity:10000}") int queueCapacity) {
+        this.timeout = timeout;
+        this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "item-request-events");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> log.warn("Очередь событий запросов переполнена, событие отброшено"));
+    }
+
+    //Поток закрывается по тайм-ауту, клиент переподключается сам
+    public SseEmitter subscribe(long userId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+
+        emitters.compute(userId, (id, userEmitters) -> {
+            List<SseEmitter> result = userEmitters == null ? new CopyOnWriteArrayList<>() : userEmitters;
+            result.add(emitter);
+            return result;
+        });
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+        return emitter;
+    }
+
+    //Отправка во все потоки пользователя без ожидания; у пользователя без подписок событие сразу отбрасывается
+    public void publish(long userId, ItemRequestEventDto event) {
+        if (emitters.containsKey(userId)) {
+            sender.execute(() -> send(userId, event));
+        }
+    }
+
+    public int subscribers(long userId) {
+        return emitters.getOrDefault(userId, List.of()).size();
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+    }
+
+    //Оборванный поток удаляется
+    private void send(long userId, ItemRequestEventDto event) {
+        for (SseEmitter emitter : emitters.getOrDefault(userId, List.of())) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(event.getType().name())
+                        .data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Поток событий пользователя {} закрыт: {}", userId, e.getMessage());
+                remove(userId, emitter);
+            }
+        }
+    }
+
+    private void remove(long userId, SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (id, userEmitters) -> {
+            userEmitters.remove(emitter);
+            return userEmitters.isEmpty() ? null : userEmitters;
+        });
+    }
+}
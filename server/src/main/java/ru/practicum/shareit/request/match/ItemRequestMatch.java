@@ -0,0 +1,10 @@
+package ru.practicum.shareit.request.match;
+
+import lombok.Data;
+
+//Открытый запрос, под описание которого подошла вещь
+@Data
+public class ItemRequestMatch {
+    private final long requestId;
+    private final long requestorId;
+}
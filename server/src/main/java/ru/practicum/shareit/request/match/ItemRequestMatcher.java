@@ -0,0 +1,124 @@
+package ru.practicum.shareit.request.match;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.SearchTokenizer;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+//Сопоставление новых вещей с открытыми запросами по обратному индексу слов из описаний запросов.
+//Запрос открыт, пока на него не ответили вещью. Индекс нужен только для сопоставления: найденные предложения
+//записывает в базу сервис запросов.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemRequestMatcher {
+    //Предлоги и союзы короче трех букв в сопоставлении не участвуют
+    private static final int MIN_TOKEN_LENGTH = 3;
+    public static final int MAX_MATCHES = 10;
+
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, OpenRequest> openRequests = new HashMap<>();
+
+    //Построение индекса по запросам без ответов при старте
+    @PostConstruct
+    public synchronized void load() {
+        Set<Long> answered = new HashSet<>(itemRepository.findAnsweredRequestIds());
+
+        postings.clear();
+        openRequests.clear();
+        itemRequestRepository.findAll().stream()
+                .filter(itemRequest -> !answered.contains(itemRequest.getId()))
+                .forEach(this::put);
+        log.info("Индекс открытых запросов построен: запросов {}, слов {}", openRequests.size(), postings.size());
+    }
+
+    //Новый запрос
+    public synchronized void open(ItemRequest itemRequest) {
+        put(itemRequest);
+    }
+
+    //На запрос ответили вещью: больше он не сопоставляется
+    public synchronized void close(long requestId) {
+        OpenRequest openRequest = openRequests.remove(requestId);
+
+        if (openRequest == null) {
+            return;
+        }
+        for (String token : openRequest.tokens) {
+            Set<Long> requestIds = postings.get(token);
+
+            requestIds.remove(requestId);
+            if (requestIds.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    //Открытые запросы, в описании которых не меньше половины слов встречается в названии или описании вещи.
+    //Запросы самого владельца вещи не предлагаются.
+    public synchronized List<ItemRequestMatch> suggest(Item item) {
+        Map<Long, Integer> hits = new HashMap<>();
+
+        for (String token : tokens(item.getName() + " " + item.getDescription())) {
+            for (Long requestId : postings.getOrDefault(token, Set.of())) {
+                hits.merge(requestId, 1, Integer::sum);
+            }
+        }
+        long ownerId = item.getOwner().getId();
+        return hits.entrySet().stream()
+                .filter(hit -> hit.getValue() * 2 >= openRequests.get(hit.getKey()).tokens.size())
+                .filter(hit -> openRequests.get(hit.getKey()).requestorId != ownerId)
+                .sorted(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_MATCHES)
+                .map(hit -> new ItemRequestMatch(hit.getKey(), openRequests.get(hit.getKey()).requestorId))
+                .collect(Collectors.toList());
+    }
+
+    public synchronized int size() {
+        return openRequests.size();
+    }
+
+    private void put(ItemRequest itemRequest) {
+        Set<String> tokens = tokens(itemRequest.getDescription());
+
+        if (tokens.isEmpty()) {
+            return;
+        }
+        openRequests.put(itemRequest.getId(), new OpenRequest(itemRequest.getRequestor().getId(), tokens));
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> new HashSet<>()).add(itemRequest.getId());
+        }
+    }
+
+    private static Set<String> tokens(String text) {
+        return SearchTokenizer.tokenize(text).stream()
+                .filter(token -> token.length() >= MIN_TOKEN_LENGTH)
+                .collect(Collectors.toSet());
+    }
+
+    private static final class OpenRequest {
+        private final long requestorId;
+        private final Set<String> tokens;
+
+        private OpenRequest(long requestorId, Set<String> tokens) {
+            this.requestorId = requestorId;
+            this.tokens = tokens;
+        }
+    }
+}
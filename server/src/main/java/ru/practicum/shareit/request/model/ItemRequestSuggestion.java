@@ -0,0 +1,30 @@
+package ru.practicum.shareit.request.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+//Вещь, предложенная запросу по совпадению описания. Запрос и вещь хранятся идентификаторами:
+//предложение записывается сразу после создания вещи, загружать сами сущности для этого не нужно.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "request_suggestions", schema = "public")
+public class ItemRequestSuggestion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "suggestion_id")
+    private Long id;
+    @Column(name = "request_id", nullable = false)
+    private Long requestId;
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+    @Column(name = "created", nullable = false)
+    private LocalDateTime created;
+}
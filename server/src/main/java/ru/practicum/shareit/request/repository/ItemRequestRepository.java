@@ -1,6 +1,8 @@
 package ru.practicum.shareit.request.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.model.ItemRequest;
 
 import java.util.List;
@@ -9,4 +11,8 @@ public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long>
     List<ItemRequest> findAllByRequestorIdOrderByCreatedDesc(long userId);
 
     List<ItemRequest> findAll();
+
+    //Чужие запросы отбираются в базе, поэтому страница всегда полная
+    @Query("select r from ItemRequest r where r.requestor.id <> ?1")
+    List<ItemRequest> findAllByRequestorIdNot(long userId, Pageable pageable);
 }
\ No newline at end of file
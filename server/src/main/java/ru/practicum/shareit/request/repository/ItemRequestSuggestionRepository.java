@@ -0,0 +1,14 @@
+package ru.practicum.shareit.request.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.request.model.ItemRequestSuggestion;
+
+import java.util.List;
+
+public interface ItemRequestSuggestionRepository extends JpaRepository<ItemRequestSuggestion, Long> {
+    //Предложенные запросу вещи, новые первыми
+    @Query("select s.itemId from ItemRequestSuggestion s where s.requestId = ?1 order by s.created desc, s.id desc")
+    List<Long> findItemIdsByRequestId(long requestId, Pageable pageable);
+}
@@ -1,5 +1,9 @@
 package ru.practicum.shareit.request.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItems;
 
@@ -12,5 +16,13 @@ public interface ItemRequestService {
 
     ItemRequestDtoWithItems getItemRequest(Long userId, Long itemRequestId);
 
+    JsonResponseCache.Entry<ItemRequestDtoWithItems> getItemRequestResponse(Long userId, Long itemRequestId);
+
     List<ItemRequestDtoWithItems> getAllWithPageable(Long userId, Integer from, Integer size);
+
+    List<ItemDto> getSuggestions(Long userId, Long itemRequestId);
+
+    SseEmitter subscribe(Long userId);
+
+    void notifyItemCreated(Item item);
 }
\ No newline at end of file
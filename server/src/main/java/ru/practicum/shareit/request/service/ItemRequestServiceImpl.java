@@ -6,31 +6,52 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestEventDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItems;
 import ru.practicum.shareit.request.dto.ItemRequestMapper;
+import ru.practicum.shareit.request.enums.ItemRequestEventType;
+import ru.practicum.shareit.request.event.ItemRequestEvents;
+import ru.practicum.shareit.request.match.ItemRequestMatch;
+import ru.practicum.shareit.request.match.ItemRequestMatcher;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.ItemRequestSuggestion;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.ItemRequestSuggestionRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ItemRequestServiceImpl implements ItemRequestService {
+    public static final int MAX_SUGGESTIONS = 20;
+
     private final ItemRequestRepository itemRequestRepository;
     private final ItemRepository itemRepository;
     private final ItemRequestMapper itemRequestMapper;
     private final UserRepository userRepository;
+    private final ItemRequestViewCache itemRequestViewCache;
+    private final ItemRequestMatcher itemRequestMatcher;
+    private final ItemRequestEvents itemRequestEvents;
+    private final IdDirectory idDirectory;
+    private final ItemRequestSuggestionRepository itemRequestSuggestionRepository;
 
     //Создание запроса
     @Override
@@ -41,32 +62,46 @@ public class ItemRequestServiceImpl implements ItemRequestService {
                 .orElseThrow(() -> new NotFoundException("Неверный идентификатор пользователя"));
 
         itemRequest.setRequestor(user);
-        log.info("Создан запрос id={}", itemRequest.getId());
-        return itemRequestMapper.toItemRequestDto(itemRequestRepository.save(itemRequest));
+        ItemRequest saved = itemRequestRepository.save(itemRequest);
+        itemRequestMatcher.open(saved);
+        log.info("Создан запрос id={}", saved.getId());
+        return itemRequestMapper.toItemRequestDto(saved);
     }
 
     //Получение запросов пользователя
     @Override
     public List<ItemRequestDtoWithItems> getAll(Long userId) {
-        userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Неверный идентификатор пользователя"));
-
-        List<ItemRequestDtoWithItems> itemRequestDtoWithItemsList = new ArrayList<>();
+        idDirectory.requireUser(userId, () -> new NotFoundException("Неверный идентификатор пользователя"));
 
-        itemRequestRepository.findAllByRequestorIdOrderByCreatedDesc(userId)
-                .forEach(itemRequest -> itemRequestDtoWithItemsList.add(convertToItemRequestDtoWithItems(itemRequest)));
+        List<ItemRequestDtoWithItems> itemRequestDtoWithItemsList = convertToItemRequestDtoWithItems(
+                itemRequestRepository.findAllByRequestorIdOrderByCreatedDesc(userId));
         log.info("Получен список всех запросов от пользователей");
         return itemRequestDtoWithItemsList;
     }
 
-    //Получение запроса
+    //Получение запроса: копия, чтобы изменения вызывающего не попали в кэш
     @Override
     public ItemRequestDtoWithItems getItemRequest(Long userId, Long itemRequestId) {
-        userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Попробуйте другой идентификатор"));
+        return itemRequestViewCache.copyValue(getItemRequestResponse(userId, itemRequestId));
+    }
+
+    //Получение запроса в виде готового тела ответа с ETag
+    @Override
+    public JsonResponseCache.Entry<ItemRequestDtoWithItems> getItemRequestResponse(Long userId, Long itemRequestId) {
+        idDirectory.requireUser(userId, () -> new NotFoundException("Попробуйте другой идентификатор"));
+
+        JsonResponseCache.Entry<ItemRequestDtoWithItems> cached = itemRequestViewCache.get(itemRequestId);
+
+        if (cached != null) {
+            return cached;
+        }
+        long ticket = itemRequestViewCache.ticket();
 
         ItemRequest itemRequest = itemRequestRepository.findById(itemRequestId).orElseThrow(() ->
                 new NotFoundException("Попробуйте другой идентификатор"));
         log.info("Получен запрос id={}", itemRequestId);
-        return convertToItemRequestDtoWithItems(itemRequest);
+        return itemRequestViewCache.put(itemRequestId, convertToItemRequestDtoWithItems(List.of(itemRequest)).get(0),
+                ticket);
     }
 
     //Получение запросов со страницами
@@ -75,29 +110,90 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         int page = from / size;
         Pageable pageable = PageRequest.of(page, size, Sort.by("created"));
 
-        userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Неверный идентификатор пользователя"));
+        idDirectory.requireUser(userId, () -> new NotFoundException("Неверный идентификатор пользователя"));
 
-        List<ItemRequest> requestList = itemRequestRepository.findAll(pageable)
-                .stream()
-                .filter(itemRequest -> !Objects.equals(itemRequest.getRequestor().getId(), userId))
-                .collect(Collectors.toList());
-
-        List<ItemRequestDtoWithItems> itemRequestDtoWithItemsList = new ArrayList<>();
-
-        requestList.forEach(itemRequest -> itemRequestDtoWithItemsList.add(convertToItemRequestDtoWithItems(itemRequest)));
+        List<ItemRequestDtoWithItems> itemRequestDtoWithItemsList = convertToItemRequestDtoWithItems(
+                itemRequestRepository.findAllByRequestorIdNot(userId, pageable));
         log.info("Получен список всех запросов от пользователей, кроме id={}", userId);
         return itemRequestDtoWithItemsList;
     }
 
-    private ItemRequestDtoWithItems convertToItemRequestDtoWithItems(ItemRequest itemRequest) {
-        ItemRequestDtoWithItems dtoWithItems = itemRequestMapper.toItemRequestDtoWithItems(itemRequest);
+    //Вещи, предложенные запросу по совпадению описания; видны только автору запроса
+    @Override
+    public List<ItemDto> getSuggestions(Long userId, Long itemRequestId) {
+        ItemRequest itemRequest = itemRequestRepository.findById(itemRequestId).orElseThrow(() ->
+                new NotFoundException("Попробуйте другой идентификатор"));
 
-        List<ItemDto> items = itemRepository.findAllByItemRequestId(dtoWithItems.getId())
-                .stream().map(ItemMapper::toItemDto).collect(Collectors.toList());
+        if (!itemRequest.getRequestor().getId().equals(userId)) {
+            throw new NotFoundException("Попробуйте другой идентификатор");
+        }
+        List<Long> itemIds = itemRequestSuggestionRepository.findItemIdsByRequestId(itemRequestId,
+                PageRequest.of(0, MAX_SUGGESTIONS));
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        return itemIds.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
+    }
+
+    //Подписка на события по своим запросам
+    @Override
+    public SseEmitter subscribe(Long userId) {
+        idDirectory.requireUser(userId, () -> new NotFoundException("Неверный идентификатор пользователя"));
+        return itemRequestEvents.subscribe(userId);
+    }
+
+    //Вещь по запросу закрывает его и приходит автору как ответ,
+    //остальные вещи предлагаются авторам подходящих открытых запросов. Предложения записываются в базу
+    //и остаются у запроса и после ответа на него.
+    @Override
+    public void notifyItemCreated(Item item) {
+        ItemDto itemDto = ItemMapper.toItemDto(item);
+        ItemRequest itemRequest = item.getItemRequest();
+
+        if (itemRequest != null) {
+            itemRequestMatcher.close(itemRequest.getId());
+            itemRequestEvents.publish(itemRequest.getRequestor().getId(),
+                    new ItemRequestEventDto(ItemRequestEventType.ANSWER, itemRequest.getId(), itemDto));
+            return;
+        }
+        List<ItemRequestMatch> matches = itemRequestMatcher.suggest(item);
+        LocalDateTime now = LocalDateTime.now();
+
+        itemRequestSuggestionRepository.saveAll(matches.stream()
+                .map(match -> new ItemRequestSuggestion(null, match.getRequestId(), item.getId(), now))
+                .collect(Collectors.toList()));
+        for (ItemRequestMatch match : matches) {
+            itemRequestEvents.publish(match.getRequestorId(),
+                    new ItemRequestEventDto(ItemRequestEventType.SUGGESTION, match.getRequestId(), itemDto));
+        }
+    }
 
-        if (!items.isEmpty()) {
-            dtoWithItems.setItems(items);
+    //Вещи для всех запросов загружаются одним запросом и раскладываются по запросам в памяти
+    private List<ItemRequestDtoWithItems> convertToItemRequestDtoWithItems(List<ItemRequest> itemRequests) {
+        if (itemRequests.isEmpty()) {
+            return new ArrayList<>();
         }
-        return dtoWithItems;
+        List<Long> itemRequestIds = itemRequests.stream().map(ItemRequest::getId).collect(Collectors.toList());
+
+        Map<Long, List<ItemDto>> items = itemRepository.findAllByItemRequestIdIn(itemRequestIds)
+                .stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.groupingBy(ItemDto::getRequestId));
+
+        return itemRequests.stream()
+                .map(itemRequest -> {
+                    ItemRequestDtoWithItems dtoWithItems = itemRequestMapper.toItemRequestDtoWithItems(itemRequest);
+                    List<ItemDto> requestItems = items.get(itemRequest.getId());
+
+                    if (requestItems != null) {
+                        dtoWithItems.setItems(requestItems);
+                    }
+                    return dtoWithItems;
+                })
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.request.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.request.dto.ItemRequestDtoWithItems;
+
+import java.time.Duration;
+
+//Кэш ответов GET /requests/{id} вместе с телом в JSON. Ответ одинаков для всех пользователей
+//и устаревает, когда по запросу добавляют или изменяют вещь.
+@Component
+public class ItemRequestViewCache {
+    public static final String NAME = "requests";
+
+    private final JsonResponseCache<ItemRequestDtoWithItems> cache;
+
+    public ItemRequestViewCache(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                                @Value("${shareit.request-cache.max-bytes:16MB}") DataSize maxBytes,
+                                @Value("${shareit.request-cache.ttl:60s}") Duration ttl) {
+        this.cache = new JsonResponseCache<>(NAME, ItemRequestDtoWithItems.class, meterRegistry, objectMapper, maxBytes.toBytes(), ttl);
+    }
+
+    public JsonResponseCache.Entry<ItemRequestDtoWithItems> get(long requestId) {
+        return cache.get(requestId);
+    }
+
+    //Отметка перед чтением из базы, ее нужно передать в put
+    public long ticket() {
+        return cache.ticket();
+    }
+
+    public JsonResponseCache.Entry<ItemRequestDtoWithItems> put(long requestId,
+                                                                ItemRequestDtoWithItems itemRequestDto,
+                                                                long ticket) {
+        return cache.put(requestId, requestId, itemRequestDto, null, ticket);
+    }
+
+    //Изменился список вещей запроса
+    public void invalidate(long requestId) {
+        cache.invalidate(requestId);
+    }
+
+    //Копия ответа, которую вызывающий может изменять
+    public ItemRequestDtoWithItems copyValue(JsonResponseCache.Entry<ItemRequestDtoWithItems> entry) {
+        return cache.copyValue(entry);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -1,11 +1,23 @@
 package ru.practicum.shareit.user.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Slf4j
@@ -14,6 +26,7 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public UserDto create(@RequestBody UserDto userDto) {
@@ -33,14 +46,48 @@ public class UserController {
         userService.delete(userId);
     }
 
+    //Тело ответа берется из кэша готовым и пишется в поток без повторной сериализации,
+    //при совпадении If-None-Match отдается 304
     @GetMapping("/{userId}")
-    public UserDto getUser(@PathVariable Long userId) {
+    public ResponseEntity<byte[]> getUser(@PathVariable Long userId) {
         log.info("Получен пользователь с id = {}", userId);
-        return userService.getUser(userId);
+        return userService.getUserResponse(userId).toResponseEntity();
     }
 
+    //Страница пользователей после пользователя after, для полной страницы курсор следующей - в заголовке
+    @GetMapping(params = "size")
+    public ResponseEntity<List<UserDto>> getPage(@RequestParam(required = false) Long after,
+                                                 @RequestParam int size) {
+        return CursorPage.withNextCursor(userService.getAll(after, size), size, user -> String.valueOf(user.getId()));
+    }
+
+    //Все пользователи: строки пишутся в ответ по мере чтения из базы, массивом JSON
+    //или по одному объекту на строку, если клиент принимает application/x-ndjson
     @GetMapping
-    public List<UserDto> getAll() {
-        return userService.getAll();
+    public ResponseEntity<StreamingResponseBody> getAll(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+        //Jackson сбрасывает свой буфер в ответ по заполнении, а не после каждого пользователя
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        StreamingResponseBody body = output -> {
+            try (SequenceWriter sequence = ndjson
+                    ? writer.withRootValueSeparator("\n").writeValues(output)
+                    : writer.writeValuesAsArray(output)) {
+                userService.forEachUser(userDto -> {
+                    try {
+                        sequence.write(userDto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
     }
 }
\ No newline at end of file
@@ -1,7 +1,17 @@
 package ru.practicum.shareit.user.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.user.model.User;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-}
\ No newline at end of file
+import java.util.List;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserStreamRepository {
+    //Идентификаторы всех пользователей для справочника в памяти
+    @Query("select u.id from User u")
+    List<Long> findAllIds();
+
+    //Страница после курсора: условие и сортировка по первичному ключу
+    List<User> findAllByIdGreaterThanOrderById(Long id, Pageable pageable);
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.user.repository;
+
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.util.List;
+
+public interface UserStreamRepository {
+    //Порция пользователей после идентификатора after по возрастанию идентификатора, сразу в виде DTO
+    List<UserDto> findUserChunkAfter(long after, int limit);
+}
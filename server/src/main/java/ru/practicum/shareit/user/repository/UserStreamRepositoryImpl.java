@@ -0,0 +1,26 @@
+package ru.practicum.shareit.user.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.util.List;
+
+//Порция читается по диапазону первичного ключа и сразу превращается в DTO, минуя контекст Hibernate.
+//Каждый вызов - отдельный короткий запрос: соединение не держится, пока порция пишется в ответ.
+@RequiredArgsConstructor
+public class UserStreamRepositoryImpl implements UserStreamRepository {
+    //Открыт для проверки плана: запросы JdbcTemplate не проходят через Hibernate
+    public static final String SELECT_CHUNK = "select user_id, user_name, email from users " +
+            "where user_id > ? " +
+            "order by user_id " +
+            "limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<UserDto> findUserChunkAfter(long after, int limit) {
+        return jdbcTemplate.query(SELECT_CHUNK, (resultSet, rowNum) -> new UserDto(resultSet.getLong(1),
+                resultSet.getString(2), resultSet.getString(3)), after, limit);
+    }
+}
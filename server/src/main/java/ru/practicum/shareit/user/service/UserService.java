@@ -1,17 +1,23 @@
 package ru.practicum.shareit.user.service;
 
+import ru.practicum.shareit.cache.JsonResponseCache;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     UserDto create(UserDto userDto);
 
     UserDto update(Long userId, UserDto userDto);
 
-    List<UserDto> getAll();
+    List<UserDto> getAll(Long after, int size);
+
+    void forEachUser(Consumer<UserDto> action);
 
     void delete(Long userId);
 
     UserDto getUser(Long userId);
+
+    JsonResponseCache.Entry<UserDto> getUserResponse(Long userId);
 }
\ No newline at end of file
@@ -1,34 +1,49 @@
 package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.service.ItemViewCache;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
+    public static final int STREAM_CHUNK_SIZE = 500;
 
     private final UserRepository userRepository;
+    private final UserViewCache userViewCache;
+    private final IdDirectory idDirectory;
+    private final CommentRepository commentRepository;
+    private final ItemViewCache itemViewCache;
 
     //Создание пользователя
     @Override
     public UserDto create(UserDto userDto) {
         User user = userRepository.save(UserMapper.toUser(userDto));
+        idDirectory.addUser(user.getId());
         return UserMapper.toUserDto(user);
     }
 
-    //Обновление пользователя
+    //Обновление пользователя. Имя показано в комментариях, поэтому при его смене устаревают
+    //закэшированные ответы по вещам, которые пользователь комментировал
     @Override
     public UserDto update(Long userId, UserDto userDto) {
         User user = userRepository.findById(userId).orElseThrow(() ->
                 new NotFoundException("Неверный идентификатор пользователя"));
+        boolean renamed = userDto.getName() != null && !userDto.getName().equals(user.getName());
 
         if (userDto.getName() != null) {
             user.setName(userDto.getName());
@@ -37,13 +52,40 @@ public class UserServiceImpl implements UserService {
             user.setEmail(userDto.getEmail());
         }
         userRepository.save(user);
+        userViewCache.invalidate(userId);
+        if (renamed) {
+            commentRepository.findItemIdsByAuthorId(userId).forEach(itemViewCache::invalidate);
+        }
         return UserMapper.toUserDto(user);
     }
 
-    //Получение всех пользователей
+    //Страница пользователей после идентификатора after
+    @Override
+    public List<UserDto> getAll(Long after, int size) {
+        if (size <= 0) {
+            throw new ValidationException("Размер страницы должен быть больше нуля");
+        }
+        return userRepository.findAllByIdGreaterThanOrderById(after == null ? 0 : after, PageRequest.of(0, size))
+                .stream()
+                .map(UserMapper::toUserDto)
+                .collect(Collectors.toList());
+    }
+
+    //Все пользователи порциями по STREAM_CHUNK_SIZE после последнего прочитанного идентификатора.
+    //Каждая порция читается своим запросом вне общей транзакции, так что соединение возвращается в пул
+    //до того, как порция уйдет медленному клиенту.
     @Override
-    public List<UserDto> getAll() {
-        return userRepository.findAll().stream().map(UserMapper::toUserDto).collect(Collectors.toList());
+    public void forEachUser(Consumer<UserDto> action) {
+        long after = 0;
+        List<UserDto> chunk;
+
+        do {
+            chunk = userRepository.findUserChunkAfter(after, STREAM_CHUNK_SIZE);
+            chunk.forEach(action);
+            if (!chunk.isEmpty()) {
+                after = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
     }
 
     //Удаление пользователя
@@ -51,6 +93,8 @@ public class UserServiceImpl implements UserService {
     public void delete(Long userId) {
         getUser(userId);
         userRepository.deleteById(userId);
+        idDirectory.removeUser(userId);
+        userViewCache.invalidate(userId);
     }
 
     //Получение пользователя
@@ -60,4 +104,16 @@ public class UserServiceImpl implements UserService {
                 new NotFoundException("Неверный идентификатор пользователя"));
         return UserMapper.toUserDto(user);
     }
-}
\ No newline at end of file
+
+    //Получение пользователя в виде готового тела ответа с ETag
+    @Override
+    public JsonResponseCache.Entry<UserDto> getUserResponse(Long userId) {
+        JsonResponseCache.Entry<UserDto> cached = userViewCache.get(userId);
+
+        if (cached != null) {
+            return cached;
+        }
+        long ticket = userViewCache.ticket();
+        return userViewCache.put(userId, getUser(userId), ticket);
+    }
+}
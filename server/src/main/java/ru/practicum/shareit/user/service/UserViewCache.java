@@ -0,0 +1,47 @@
+package ru.practicum.shareit.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.time.Duration;
+
+//Кэш ответов GET /users/{id} вместе с телом в JSON, объем ограничен бюджетом в байтах
+@Component
+public class UserViewCache {
+    public static final String NAME = "users";
+
+    private final JsonResponseCache<UserDto> cache;
+
+    public UserViewCache(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                         @Value("${shareit.user-cache.max-bytes:8MB}") DataSize maxBytes,
+                         @Value("${shareit.user-cache.ttl:60s}") Duration ttl) {
+        this.cache = new JsonResponseCache<>(NAME, UserDto.class, meterRegistry, objectMapper, maxBytes.toBytes(), ttl);
+    }
+
+    public JsonResponseCache.Entry<UserDto> get(long userId) {
+        return cache.get(userId);
+    }
+
+    //Отметка перед чтением из базы, ее нужно передать в put
+    public long ticket() {
+        return cache.ticket();
+    }
+
+    public JsonResponseCache.Entry<UserDto> put(long userId, UserDto userDto, long ticket) {
+        return cache.put(userId, userId, userDto, null, ticket);
+    }
+
+    //Пользователь изменен или удален
+    public void invalidate(long userId) {
+        cache.invalidate(userId);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,12 @@
+-- Разовые изменения баз, созданных до появления колонок. Скрипт выполняется до schema.sql, поэтому индексы
+-- из schema.sql уже находят колонки. В новой базе таблиц еще нет и блок ничего не делает.
+-- Тело блока в одинарных кавычках, чтобы скрипт не разрезался по ';'
+DO '
+BEGIN
+    -- Владелец вещи в брони: колонка добавляется и заполняется один раз
+    IF to_regclass(''bookings'') IS NOT NULL AND NOT EXISTS (SELECT 1 FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = ''bookings'' AND column_name = ''owner_id'') THEN
+        ALTER TABLE bookings ADD COLUMN owner_id BIGINT;
+        UPDATE bookings SET owner_id = (SELECT i.owner_id FROM items i WHERE i.item_id = bookings.item_id);
+    END IF;
+END';
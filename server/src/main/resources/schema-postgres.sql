@@ -0,0 +1,29 @@
+CREATE INDEX IF NOT EXISTS items_search_idx ON items USING GIN (
+    (setweight(to_tsvector('simple', item_name), 'A') || setweight(to_tsvector('simple', description), 'B'))
+    );
+
+-- Идентификаторы броней выдает bookings_seq блоками по 50 (pooled), а не IDENTITY-колонка
+ALTER TABLE bookings ALTER COLUMN booking_id DROP IDENTITY IF EXISTS;
+
+SELECT setval('bookings_seq', GREATEST((SELECT last_value FROM bookings_seq),
+    (SELECT COALESCE(MAX(booking_id), 0) + 50 FROM bookings)));
+
+-- Частичные индексы по броням, ждущим решения: очередь владельца и бронирующего мала по сравнению со всей историей
+CREATE INDEX IF NOT EXISTS bookings_waiting_booker_idx ON bookings (booker_id, start_date DESC, booking_id DESC)
+    WHERE status = 'WAITING';
+
+CREATE INDEX IF NOT EXISTS bookings_waiting_owner_idx ON bookings (owner_id, start_date DESC, booking_id DESC)
+    WHERE status = 'WAITING';
+
+-- Смена владельца вещи каскадом переносится в bookings.owner_id. В базах, созданных до появления колонки,
+-- ограничения добавляются один раз; тело блока в одинарных кавычках, чтобы скрипт не разрезался по ';'
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''unique_item_owner'') THEN
+        ALTER TABLE items ADD CONSTRAINT unique_item_owner UNIQUE (item_id, owner_id);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''fk_bookings_to_item_owner'') THEN
+        ALTER TABLE bookings ADD CONSTRAINT fk_bookings_to_item_owner FOREIGN KEY (item_id, owner_id)
+            REFERENCES items (item_id, owner_id) ON UPDATE CASCADE;
+    END IF;
+END';
@@ -21,18 +21,24 @@ CREATE TABLE IF NOT EXISTS items (
     available boolean NOT NULL,
     owner_id BIGINT,
     request_id BIGINT,
-    CONSTRAINT fk_items_to_users FOREIGN KEY(owner_id) REFERENCES users(user_id)
+    CONSTRAINT fk_items_to_users FOREIGN KEY(owner_id) REFERENCES users(user_id),
+    CONSTRAINT unique_item_owner UNIQUE (item_id, owner_id)
     );
 
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS bookings (
-    booking_id BIGINT GENERATED ALWAYS AS IDENTITY NOT NULL PRIMARY KEY,
+    booking_id BIGINT NOT NULL PRIMARY KEY,
     start_date timestamp WITHOUT TIME ZONE NOT NULL,
     end_date timestamp WITHOUT TIME ZONE NOT NULL,
     item_id BIGINT,
     booker_id BIGINT,
+    owner_id BIGINT,
     status varchar(9) NOT NULL,
     CONSTRAINT fk_bookings_to_items FOREIGN KEY(item_id) REFERENCES items(item_id),
-    CONSTRAINT fk_bookings_to_users FOREIGN KEY(booker_id) REFERENCES users(user_id)
+    CONSTRAINT fk_bookings_to_users FOREIGN KEY(booker_id) REFERENCES users(user_id),
+    CONSTRAINT fk_bookings_to_item_owner FOREIGN KEY(item_id, owner_id) REFERENCES items(item_id, owner_id)
+    ON UPDATE CASCADE
     );
 
 CREATE TABLE IF NOT EXISTS comments (
@@ -43,4 +49,45 @@ CREATE TABLE IF NOT EXISTS comments (
     created timestamp WITHOUT TIME ZONE NOT NULL,
     CONSTRAINT fk_comments_to_items FOREIGN KEY(item_id) REFERENCES items(item_id),
     CONSTRAINT fk_comments_to_users FOREIGN KEY(author_id) REFERENCES users(user_id)
-    );
\ No newline at end of file
+    );
+
+CREATE TABLE IF NOT EXISTS request_suggestions (
+    suggestion_id BIGINT GENERATED ALWAYS AS IDENTITY NOT NULL PRIMARY KEY,
+    request_id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    created timestamp WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT fk_suggestions_to_requests FOREIGN KEY(request_id) REFERENCES requests(request_id),
+    CONSTRAINT fk_suggestions_to_items FOREIGN KEY(item_id) REFERENCES items(item_id),
+    CONSTRAINT unique_request_suggestion UNIQUE (request_id, item_id)
+    );
+-- Индексы под фильтр и сортировку каждого запроса репозиториев
+CREATE INDEX IF NOT EXISTS requests_requestor_created_idx ON requests (requestor_id, created);
+
+CREATE INDEX IF NOT EXISTS requests_created_idx ON requests (created, request_id);
+
+CREATE INDEX IF NOT EXISTS items_owner_idx ON items (owner_id, item_id);
+
+CREATE INDEX IF NOT EXISTS items_request_idx ON items (request_id);
+
+CREATE INDEX IF NOT EXISTS bookings_booker_start_idx ON bookings (booker_id, start_date, booking_id);
+
+CREATE INDEX IF NOT EXISTS bookings_booker_status_start_idx ON bookings (booker_id, status, start_date, booking_id);
+
+CREATE INDEX IF NOT EXISTS bookings_owner_start_idx ON bookings (owner_id, start_date, booking_id);
+
+CREATE INDEX IF NOT EXISTS bookings_owner_status_start_idx ON bookings (owner_id, status, start_date, booking_id);
+
+CREATE INDEX IF NOT EXISTS bookings_item_start_idx ON bookings (item_id, start_date, booking_id);
+
+CREATE INDEX IF NOT EXISTS bookings_item_end_idx ON bookings (item_id, end_date);
+
+CREATE INDEX IF NOT EXISTS bookings_status_end_idx ON bookings (status, end_date);
+
+CREATE INDEX IF NOT EXISTS bookings_end_idx ON bookings (end_date);
+
+CREATE INDEX IF NOT EXISTS comments_item_idx ON comments (item_id, comment_id);
+
+CREATE INDEX IF NOT EXISTS comments_author_idx ON comments (author_id, item_id);
+
+CREATE INDEX IF NOT EXISTS request_suggestions_request_created_idx
+    ON request_suggestions (request_id, created, suggestion_id);
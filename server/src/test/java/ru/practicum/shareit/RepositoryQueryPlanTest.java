@@ -0,0 +1,224 @@
+package ru.practicum.shareit;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
+import ru.practicum.shareit.booking.enums.BookingParty;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingBatchRepositoryImpl;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.ItemRequestSuggestionRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.repository.UserStreamRepositoryImpl;
+
+import java.sql.ParameterMetaData;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Планы всех запросов репозиториев: SQL перехватывается у Hibernate и проверяется через EXPLAIN во встроенной базе
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.shareit.RepositoryQueryPlanTest$SqlRecorder")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Profile("test")
+public class RepositoryQueryPlanTest {
+    //Так H2 помечает в плане полный просмотр таблицы
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan");
+    private static final List<Status> LIST_STATES = List.of(Status.ALL, Status.CURRENT, Status.PAST, Status.FUTURE,
+            Status.WAITING, Status.REJECTED);
+
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private ItemRequestSuggestionRepository itemRequestSuggestionRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final Pageable page = PageRequest.of(0, 10);
+
+    private User owner;
+    private User booker;
+    private Item item;
+    private Booking booking;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = entityManager.persist(new User(null, "testOwner", "testOwner@yandex.ru"));
+        booker = entityManager.persist(new User(null, "testBooker", "testBooker@yandex.ru"));
+        ItemRequest itemRequest = entityManager.persist(new ItemRequest(null, "testRequest", owner, now));
+        item = entityManager.persist(new Item(null, "testItem", "testDescription", true, owner, itemRequest));
+        booking = entityManager.persist(new Booking(null, now.minusDays(2), now.minusDays(1), item, booker,
+                Status.APPROVED));
+        entityManager.persist(new Booking(null, now.plusDays(1), now.plusDays(2), item, booker, Status.WAITING));
+        entityManager.persist(new Comment(null, "testComment", item, booker, now));
+        entityManager.flush();
+        entityManager.clear();
+
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    //Списки броней бронирующего и владельца, полные и короткие, с курсором и без
+    @Test
+    public void bookingListQueriesUseIndexes() {
+        long bookerId = booker.getId();
+        long ownerId = owner.getId();
+
+        //первая страница запрашивается без курсора, следующие - после него
+        List<BookingCursor> cursors = Arrays.asList(null, new BookingCursor(now, Long.MAX_VALUE));
+
+        for (BookingParty party : BookingParty.values()) {
+            long userId = party == BookingParty.OWNER ? ownerId : bookerId;
+
+            for (Status state : LIST_STATES) {
+                for (BookingCursor cursor : cursors) {
+                    bookingRepository.findBookings(party, userId, state, now, cursor, 0, 20, Booking.class);
+                    bookingRepository.findBookings(party, userId, state, now, cursor, 0, 20, BookingDtoShort.class);
+                }
+            }
+        }
+
+        assertIndexed(48);
+    }
+
+    //Поиск брони по идентификатору, последние и следующие брони вещей, смена статуса, загрузка счетчиков
+    @Test
+    public void bookingLookupQueriesUseIndexes() {
+        long itemId = item.getId();
+
+        bookingRepository.findById(booking.getId());
+        bookingRepository.findAllByIdIn(List.of(booking.getId()));
+        bookingRepository.findItemIdsByIdIn(List.of(booking.getId()));
+        bookingRepository.searchBookingByBookerIdAndItemIdAndEndIsBeforeAndStatus(booker.getId(), itemId, now,
+                Status.APPROVED);
+        bookingRepository.findBookingsByItemIdAndEndIsBeforeOrderByEndDesc(itemId, now);
+        bookingRepository.findBookingsByItemIdAndStartIsAfterOrderByStartDesc(itemId, now);
+        bookingRepository.findItemBookingsStartedBefore(itemId, Status.APPROVED, now, page);
+        bookingRepository.findItemBookingsStartingAfter(itemId, Status.APPROVED, now, page);
+        bookingRepository.findLastAndNextBookings(List.of(itemId), now);
+        bookingRepository.findActiveIntervals(List.of(Status.WAITING, Status.APPROVED), now);
+        bookingRepository.updateStatusByOwner(booking.getId(), owner.getId(), Status.REJECTED, Status.WAITING);
+        bookingRepository.countEndedBookingsByParties(now);
+        bookingRepository.findTimelineEndingFrom(now);
+        bookingRepository.findTimelineByStatusEndedBefore(Status.WAITING, now);
+
+        assertIndexed(14, BookingBatchRepositoryImpl.UPDATE_STATUS);
+    }
+
+    //Вещи владельца и запроса, комментарии, запросы пользователя и их предложения
+    @Test
+    public void itemQueriesUseIndexes() {
+        itemRepository.findById(item.getId());
+        itemRepository.findAllByItemRequestId(item.getItemRequest().getId());
+        itemRepository.findAllByItemRequestIdIn(List.of(item.getItemRequest().getId()));
+        itemRepository.findAnsweredRequestIds();
+        itemRepository.findByOwnerId(owner.getId(), page);
+        commentRepository.findAllByItemId(item.getId());
+        commentRepository.findAllByItemIdIn(List.of(item.getId()));
+        commentRepository.findItemIdsByAuthorId(booker.getId());
+        itemRequestRepository.findAllByRequestorIdOrderByCreatedDesc(owner.getId());
+        itemRequestRepository.findAllByRequestorIdNot(booker.getId(), PageRequest.of(0, 10, Sort.by("created")));
+        itemRequestSuggestionRepository.findItemIdsByRequestId(item.getItemRequest().getId(), page);
+
+        assertIndexed(11);
+    }
+
+    //Страница пользователей после курсора и порция потока всех пользователей
+    @Test
+    public void userQueriesUseIndexes() {
+        userRepository.findAllByIdGreaterThanOrderById(owner.getId(), page);
+
+        assertIndexed(1, UserStreamRepositoryImpl.SELECT_CHUNK);
+    }
+
+    //jdbcStatements - запросы JdbcTemplate, которые Hibernate не видит
+    private void assertIndexed(int expectedStatements, String... jdbcStatements) {
+        List<String> statements = new ArrayList<>(SqlRecorder.STATEMENTS);
+        List<String> scans = new ArrayList<>();
+
+        assertTrue(statements.size() >= expectedStatements, "Перехвачены не все запросы: " + statements);
+        statements.addAll(Arrays.asList(jdbcStatements));
+        for (String sql : statements) {
+            String plan = explain(sql);
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+
+            if (matcher.find()) {
+                scans.add("Полный просмотр таблицы " + matcher.group(1) + " в плане запроса:\n" + plan);
+            }
+        }
+        assertTrue(scans.isEmpty(), String.join("\n\n", scans));
+    }
+
+    //Значения параметров на выбор индекса не влияют, поэтому все параметры связываются с NULL
+    private String explain(String sql) {
+        return jdbcTemplate.execute("EXPLAIN " + sql, (PreparedStatementCallback<String>) statement -> {
+            ParameterMetaData parameters = statement.getParameterMetaData();
+
+            for (int i = 1; i <= parameters.getParameterCount(); i++) {
+                statement.setNull(i, parameters.getParameterType(i));
+            }
+            StringBuilder plan = new StringBuilder();
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1));
+                }
+            }
+            return plan.toString();
+        });
+    }
+
+    //Hibernate создает инспектор сам, поэтому перехваченные запросы хранятся в статическом списке
+    public static class SqlRecorder implements StatementInspector {
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        private static final Set<String> RECORDED_PREFIXES = Set.of("select", "update");
+
+        @Override
+        public String inspect(String sql) {
+            String prefix = sql.trim().split("\\s+", 2)[0].toLowerCase();
+
+            if (RECORDED_PREFIXES.contains(prefix)) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
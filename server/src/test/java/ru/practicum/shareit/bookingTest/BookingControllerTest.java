@@ -14,12 +14,21 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.practicum.shareit.booking.controller.BookingController;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingCreateResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionsDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
 import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.dto.BookingRequestsDto;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
 import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.user.model.User;
 
 import java.nio.charset.StandardCharsets;
@@ -128,14 +137,15 @@ public class BookingControllerTest {
         BookingDto bookingDto = BookingMapper.toBookingDto(booking);
         bookingDtoList.add(bookingDto);
 
-        when(bookingService.getAll(bookingDto.getBooker().getId(), "ALL", 0, 20))
+        when(bookingService.getAll(bookingDto.getBooker().getId(), "ALL", 0, 20, null))
                 .thenReturn(bookingDtoList);
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", bookingDto.getBooker().getId())
                         .param("state", "ALL")
                         .param("from", "0")
-                        .param("size", "20"))
+                        .param("size", "20")
+                        .param("view", "full"))
                 .andExpect(status().isOk())
                 .andExpect(content().json("[{\"id\": 1," +
                         " \"item\": {\"id\": 1,\"name\": \"testItem\"," +
@@ -145,7 +155,7 @@ public class BookingControllerTest {
                         " \"booker\": {\"id\": 2,\"name\": \"testBooker\",\"email\": \"testBooker@yandex.ru\"}}]"));
 
         verify(bookingService, times(1))
-                .getAll(bookingDto.getBooker().getId(), "ALL", 0, 20);
+                .getAll(bookingDto.getBooker().getId(), "ALL", 0, 20, null);
     }
 
     //Получение всех бронирований пользователя
@@ -158,13 +168,14 @@ public class BookingControllerTest {
         BookingDto bookingDto = BookingMapper.toBookingDto(booking);
         bookingDtoList.add(bookingDto);
 
-        when(bookingService.getAllBookingByOwner(itemUserId, "ALL", 0, 20)).thenReturn(bookingDtoList);
+        when(bookingService.getAllBookingByOwner(itemUserId, "ALL", 0, 20, null)).thenReturn(bookingDtoList);
 
         mockMvc.perform(get("/bookings/owner")
                         .header("X-Sharer-User-Id", bookingDto.getItem().getOwner().getId())
                         .param("state", "ALL")
                         .param("from", "0")
-                        .param("size", "20"))
+                        .param("size", "20")
+                        .param("view", "full"))
                 .andExpect(status().isOk())
                 .andExpect(content().json("[{\"id\": 1," +
                         " \"item\": {\"id\": 1,\"name\": \"testItem\"," +
@@ -174,7 +185,69 @@ public class BookingControllerTest {
                         " \"booker\": {\"id\": 2,\"name\": \"testBooker\",\"email\": \"testBooker@yandex.ru\"}}]"));
 
         verify(bookingService, times(1)).getAllBookingByOwner(itemUserId, "ALL", 0,
-                20);
+                20, null);
+    }
+
+    //Получение всех бронирований в кратком виде
+    @Test
+    void getAllBookingsShortView() throws Exception {
+        BookingDtoShort bookingDto = new BookingDtoShort(booking.getId(), booking.getStart(), booking.getEnd(),
+                booking.getStatus(), booking.getItem().getId(), booking.getItem().getName(),
+                booking.getBooker().getId());
+
+        when(bookingService.getAllShort(booking.getBooker().getId(), "ALL", 0, 20, null))
+                .thenReturn(List.of(bookingDto));
+
+        mockMvc.perform(get("/bookings")
+                        .header("X-Sharer-User-Id", booking.getBooker().getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\": 1, \"item\": {\"id\": 1,\"name\": \"testItem\"}," +
+                        " \"booker\": {\"id\": 2}}]"))
+                .andExpect(jsonPath("$[0].item.owner").doesNotExist())
+                .andExpect(jsonPath("$[0].booker.email").doesNotExist());
+
+        verify(bookingService, times(1)).getAllShort(booking.getBooker().getId(), "ALL", 0, 20, null);
+        verify(bookingService, never()).getAll(anyLong(), anyString(), anyInt(), anyInt(), any());
+    }
+
+    //Получение всех бронирований владельца в кратком виде
+    @Test
+    void getAllUserBookingsShortView() throws Exception {
+        Long itemUserId = booking.getItem().getOwner().getId();
+        BookingDtoShort bookingDto = new BookingDtoShort(booking.getId(), booking.getStart(), booking.getEnd(),
+                booking.getStatus(), booking.getItem().getId(), booking.getItem().getName(),
+                booking.getBooker().getId());
+
+        when(bookingService.getAllShortBookingByOwner(itemUserId, "ALL", 0, 1, null))
+                .thenReturn(List.of(bookingDto));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", itemUserId)
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER,
+                        BookingCursor.after(bookingDto).encode()))
+                .andExpect(jsonPath("$[0].item.name").value("testItem"));
+    }
+
+    //Курсор следующей страницы
+    @Test
+    void getAllUserBookingsNextCursor() throws Exception {
+        Long itemUserId = booking.getItem().getOwner().getId();
+        BookingDto bookingDto = BookingMapper.toBookingDto(booking);
+        String after = new BookingCursor(booking.getStart().plusDays(1), 5L).encode();
+
+        when(bookingService.getAllBookingByOwner(itemUserId, "ALL", 0, 1, after)).thenReturn(List.of(bookingDto));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", itemUserId)
+                        .param("size", "1")
+                        .param("after", after)
+                        .param("view", "full"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER,
+                        BookingCursor.after(bookingDto).encode()))
+                .andExpect(jsonPath("$[0].id").value(bookingDto.getId()));
     }
 
     //Подтверждение брони
@@ -204,4 +277,70 @@ public class BookingControllerTest {
                         " \"booker\": {\"id\": 2,\"name\": \"testBooker\",\"email\": \"testBooker@yandex.ru\"}}"));
         verify(bookingService, times(1)).approve(itemUserId, bookingId, true);
     }
-}
\ No newline at end of file
+
+    //Пакетное подтверждение броней
+    @Test
+    void approveAll() throws Exception {
+        List<BookingDecisionDto> decisions = List.of(new BookingDecisionDto(1L, true),
+                new BookingDecisionDto(2L, false));
+        List<BookingDecisionResultDto> results = List.of(new BookingDecisionResultDto(1L, APPROVED, null),
+                new BookingDecisionResultDto(2L, null, "Неверный идентификатор брони"));
+
+        when(bookingService.approveAll(1L, decisions)).thenReturn(results);
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1)
+                        .content(mapper.writeValueAsString(new BookingDecisionsDto(decisions)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"bookingId\": 1, \"status\": \"APPROVED\", \"error\": null}," +
+                        " {\"bookingId\": 2, \"status\": null, \"error\": \"Неверный идентификатор брони\"}]"));
+
+        verify(bookingService, times(1)).approveAll(1L, decisions);
+        verify(bookingService, never()).approve(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void createAll() throws Exception {
+        List<BookingDtoSimple> bookings = List.of(new BookingDtoSimple(null, null, null, 1L));
+        List<BookingCreateResultDto> results = List.of(
+                new BookingCreateResultDto(null, "Необходимо указать время начала и окончания"));
+
+        when(bookingService.createAll(bookings, 1L)).thenReturn(results);
+
+        mockMvc.perform(post("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1)
+                        .content(mapper.writeValueAsString(new BookingRequestsDto(bookings)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"booking\": null," +
+                        " \"error\": \"Необходимо указать время начала и окончания\"}]"));
+
+        verify(bookingService, times(1)).createAll(bookings, 1L);
+        verify(bookingService, never()).create(any(), anyLong());
+    }
+
+    //Счетчики броней арендатора и владельца
+    @Test
+    void getStats() throws Exception {
+        when(bookingService.getStats(2L)).thenReturn(new BookingStatsDto(3, 1, 1, 1, 1, 0));
+        when(bookingService.getOwnerStats(1L)).thenReturn(new BookingStatsDto(2, 0, 0, 2, 1, 1));
+
+        mockMvc.perform(get("/bookings/stats")
+                        .header("X-Sharer-User-Id", 2))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"all\": 3, \"current\": 1, \"past\": 1, \"future\": 1," +
+                        " \"waiting\": 1, \"rejected\": 0}"));
+        mockMvc.perform(get("/bookings/owner/stats")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"all\": 2, \"current\": 0, \"past\": 0, \"future\": 2," +
+                        " \"waiting\": 1, \"rejected\": 1}"));
+
+        verify(bookingService, never()).getAllShort(anyLong(), any(), anyInt(), anyInt(), any());
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.shareit.bookingTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.exception.AvailableException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookingIntervalIndexTest {
+    private BookingRepository bookingRepository;
+    private BookingIntervalIndex bookingIntervalIndex;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void beforeEach() {
+        bookingRepository = mock(BookingRepository.class);
+        bookingIntervalIndex = new BookingIntervalIndex(bookingRepository);
+        base = LocalDateTime.now().plusDays(1);
+    }
+
+    //Пересекающиеся интервалы одной вещи
+    @Test
+    void rejectOverlappingReservation() {
+        bookingIntervalIndex.reserve(1L, base, base.plusDays(2));
+
+        assertThrows(AvailableException.class, () ->
+                bookingIntervalIndex.reserve(1L, base.plusDays(1), base.plusDays(3)));
+        assertThrows(AvailableException.class, () ->
+                bookingIntervalIndex.reserve(1L, base.minusDays(1), base.plusDays(1)));
+        assertThrows(AvailableException.class, () ->
+                bookingIntervalIndex.reserve(1L, base.minusDays(1), base.plusDays(5)));
+    }
+
+    //Соседние интервалы и другие вещи
+    @Test
+    void acceptAdjacentReservation() {
+        bookingIntervalIndex.reserve(1L, base, base.plusDays(2));
+
+        assertDoesNotThrow(() -> bookingIntervalIndex.reserve(1L, base.plusDays(2), base.plusDays(3)));
+        assertDoesNotThrow(() -> bookingIntervalIndex.reserve(1L, base.minusDays(1), base));
+        assertDoesNotThrow(() -> bookingIntervalIndex.reserve(2L, base, base.plusDays(2)));
+    }
+
+    //Освобождение интервала отклоненной брони
+    @Test
+    void releaseRejectedBooking() {
+        BookingIntervalIndex.Reservation reservation = bookingIntervalIndex.reserve(1L, base, base.plusDays(2));
+        bookingIntervalIndex.attach(reservation, 10L);
+
+        bookingIntervalIndex.release(10L);
+
+        assertDoesNotThrow(() -> bookingIntervalIndex.reserve(1L, base, base.plusDays(2)));
+    }
+
+    //Загрузка броней при старте, включая исторически пересекающиеся
+    @Test
+    void loadActiveBookings() {
+        when(bookingRepository.findActiveIntervals(anyCollection(), any())).thenReturn(List.of(
+                new BookingDtoSimple(1L, base, base.plusDays(10), 1L),
+                new BookingDtoSimple(2L, base.plusDays(1), base.plusDays(2), 1L)));
+
+        bookingIntervalIndex.load();
+
+        assertThrows(AvailableException.class, () ->
+                bookingIntervalIndex.reserve(1L, base.plusDays(5), base.plusDays(6)));
+
+        bookingIntervalIndex.release(1L);
+
+        assertDoesNotThrow(() -> bookingIntervalIndex.reserve(1L, base.plusDays(5), base.plusDays(6)));
+    }
+
+    //Одновременные брони одной вещи: выигрывает ровно одна
+    @Test
+    void concurrentReservations() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            int shift = i;
+            results.add(executor.submit(() -> {
+                startLatch.await();
+                try {
+                    bookingIntervalIndex.reserve(1L, base.plusHours(shift), base.plusDays(1).plusHours(shift));
+                    return true;
+                } catch (AvailableException e) {
+                    return false;
+                }
+            }));
+        }
+        startLatch.countDown();
+
+        int accepted = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                accepted++;
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(1, accepted, "Пересекающиеся брони приняты одновременно");
+    }
+}
@@ -1,22 +1,34 @@
 package ru.practicum.shareit.bookingTest;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.Pageable;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoForItemView;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
+import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.enums.BookingParty;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +42,10 @@ public class BookingRepositoryTest {
     private UserRepository userRepository;
     @Autowired
     private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private TestEntityManager entityManager;
 
     private Item item;
     private User owner;
@@ -46,9 +62,103 @@ public class BookingRepositoryTest {
                 LocalDateTime.now().minusDays(2), item, booker, Status.APPROVED));
     }
 
+    //Очистка контекста и счетчиков, чтобы считались только запросы проверяемого метода
+    private Statistics resetStatistics() {
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    //Все, что сериализуется в BookingDto, читается без дополнительных запросов
+    private static void readDetails(BookingDto bookingDto) {
+        bookingDto.getBooker().getName();
+        bookingDto.getItem().getOwner().getName();
+        if (bookingDto.getItem().getItemRequest() != null) {
+            bookingDto.getItem().getItemRequest().getRequestor().getName();
+        }
+    }
+
+    private Booking saveBookingWithRequest() {
+        ItemRequest itemRequest = itemRequestRepository.save(new ItemRequest(null, "testRequest", owner,
+                LocalDateTime.now()));
+        Item requestedItem = itemRepository.save(new Item(null, "requestedItem", "testDescription", true, owner,
+                itemRequest));
+        return bookingRepository.save(new Booking(null, LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(2), requestedItem, booker, Status.WAITING));
+    }
+
+    //Страница броней арендатора загружается одним запросом
+    @Test
+    void getBookerBookingsSingleStatementTest() {
+        saveBookingWithRequest();
+        final Statistics statistics = resetStatistics();
+
+        final List<BookingDto> bookings = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(),
+                Status.ALL, LocalDateTime.now(), null, 0, 20, Booking.class)
+                .stream().map(BookingMapper::toBookingDto).collect(Collectors.toList());
+        bookings.forEach(BookingRepositoryTest::readDetails);
+
+        assertEquals(2, bookings.size(), "Неверное количество броней");
+        assertEquals(1, statistics.getPrepareStatementCount(), "Лишние запросы к базе");
+    }
+
+    //Страница броней владельца загружается одним запросом
+    @Test
+    void getOwnerBookingsSingleStatementTest() {
+        saveBookingWithRequest();
+        final Statistics statistics = resetStatistics();
+
+        final List<BookingDto> bookings = bookingRepository.findBookings(BookingParty.OWNER, owner.getId(),
+                Status.WAITING, LocalDateTime.now(), null, 0, 20, Booking.class)
+                .stream().map(BookingMapper::toBookingDto).collect(Collectors.toList());
+        bookings.forEach(BookingRepositoryTest::readDetails);
+
+        assertEquals(1, bookings.size(), "Неверное количество броней");
+        assertEquals(1, statistics.getPrepareStatementCount(), "Лишние запросы к базе");
+    }
+
+    //Краткие брони читаются одним запросом без загрузки сущностей
+    @Test
+    void getBookerShortBookingsTest() {
+        final Booking saved = saveBookingWithRequest();
+        final Statistics statistics = resetStatistics();
+
+        final List<BookingDtoShort> bookings = bookingRepository.findBookings(BookingParty.OWNER, owner.getId(),
+                Status.WAITING, LocalDateTime.now(), null, 0, 20, BookingDtoShort.class);
+
+        assertEquals(1, bookings.size(), "Неверное количество броней");
+        assertEquals(saved.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
+        assertEquals(saved.getItem().getId(), bookings.get(0).getItem().getId(), "Вещи не совпадают");
+        assertEquals(saved.getItem().getName(), bookings.get(0).getItem().getName(), "Названия не совпадают");
+        assertEquals(booker.getId(), bookings.get(0).getBooker().getId(), "Арендаторы не совпадают");
+        assertEquals(Status.WAITING, bookings.get(0).getStatus(), "Статусы не совпадают");
+        assertEquals(1, statistics.getPrepareStatementCount(), "Лишние запросы к базе");
+        assertEquals(0, statistics.getEntityLoadCount(), "Загружены сущности");
+    }
+
+    //Бронь по идентификатору загружается одним запросом
+    @Test
+    void getBookingByIdSingleStatementTest() {
+        final Booking saved = saveBookingWithRequest();
+        final Statistics statistics = resetStatistics();
+
+        final BookingDto bookingDto = BookingMapper.toBookingDto(bookingRepository.findById(saved.getId())
+                .orElseThrow());
+        readDetails(bookingDto);
+
+        assertEquals("testRequest", bookingDto.getItem().getItemRequest().getDescription(),
+                "Запрос не загружен");
+        assertEquals(1, statistics.getPrepareStatementCount(), "Лишние запросы к базе");
+    }
+
     @Test
     void getBooker() {
-        final List<Booking> bookings = bookingRepository.findByBookerId(booker.getId(), Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(), Status.ALL,
+                LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(booking.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
         assertEquals(booking.getStart(), bookings.get(0).getStart(), "Время начала не совпадает");
@@ -59,15 +169,16 @@ public class BookingRepositoryTest {
 
     @Test
     void getBookerAndLocalDateTimeTest() {
-        List<Booking> bookings = bookingRepository.findByBookerIdAndStartAfter(booker.getId(), LocalDateTime.now(),
-                Pageable.unpaged());
+        List<Booking> bookings = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(), Status.FUTURE,
+                LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(0, bookings.size(), "Бронь есть");
     }
 
     @Test
     void getBookingItemOwnerIdTest() {
-        final List<Booking> bookings = bookingRepository.searchBookingByItemOwnerId(owner.getId(), Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.OWNER, owner.getId(), Status.ALL,
+                LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -96,8 +207,8 @@ public class BookingRepositoryTest {
         final Booking booking1 = bookingRepository.save(new Booking(2L, LocalDateTime.now().plusDays(5),
                 LocalDateTime.now().plusDays(10), item, booker, Status.APPROVED));
 
-        final List<Booking> bookings = bookingRepository.searchBookingByItemOwnerIdAndStartIsAfter(owner.getId(),
-                LocalDateTime.now(), Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.OWNER, owner.getId(), Status.FUTURE,
+                LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking1.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -146,8 +257,8 @@ public class BookingRepositoryTest {
 
     @Test
     void getBookingsBookerIdAndStatusTest() {
-        final List<Booking> bookings = bookingRepository.findBookingsByBookerIdAndStatus(booker.getId(), Status.APPROVED,
-                Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(),
+                Status.APPROVED, LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -159,8 +270,8 @@ public class BookingRepositoryTest {
 
     @Test
     void getBookingsItemOwnerIdTest() {
-        final List<Booking> bookings = bookingRepository.searchBookingByItemOwnerId(item.getOwner().getId(),
-                Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.OWNER, item.getOwner().getId(),
+                Status.ALL, LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -175,8 +286,8 @@ public class BookingRepositoryTest {
         final Booking booking1 = bookingRepository.save(new Booking(2L, LocalDateTime.now().minusDays(5),
                 LocalDateTime.now().plusDays(10), item, booker, Status.APPROVED));
 
-        final List<Booking> bookings = bookingRepository.findCurrentBookingsByBookerId(booker.getId(), LocalDateTime.now(),
-                Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(),
+                Status.CURRENT, LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking1.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -191,8 +302,8 @@ public class BookingRepositoryTest {
         final Booking booking1 = bookingRepository.save(new Booking(2L, LocalDateTime.now().minusDays(5),
                 LocalDateTime.now().plusDays(10), item, booker, Status.APPROVED));
 
-        final List<Booking> bookings = bookingRepository.findCurrentBookingsByItemOwnerId(item.getOwner().getId(),
-                LocalDateTime.now(), Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.OWNER, item.getOwner().getId(),
+                Status.CURRENT, LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking1.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -204,8 +315,8 @@ public class BookingRepositoryTest {
 
     @Test
     void getBookingsBookerIdAndEndIsBeforeTest() {
-        final List<Booking> bookings = bookingRepository.findBookingsByBookerIdAndEndIsBefore(booker.getId(),
-                LocalDateTime.now(), Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(), Status.PAST,
+                LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -217,8 +328,8 @@ public class BookingRepositoryTest {
 
     @Test
     void getBookingsItemOwnerIdAndEndIsBeforeTest() {
-        final List<Booking> bookings = bookingRepository.findBookingsByItemOwnerIdAndEndIsBefore(item.getOwner().getId(),
-                LocalDateTime.now(), Pageable.unpaged());
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.OWNER, item.getOwner().getId(),
+                Status.PAST, LocalDateTime.now(), null, 0, Integer.MAX_VALUE, Booking.class);
 
         assertEquals(1, bookings.size(), "Бронь отсутствует");
         assertEquals(booking.getId(), bookings.get(0).getId(), "Идентификаторы не совпадают");
@@ -227,4 +338,86 @@ public class BookingRepositoryTest {
         assertEquals(booking.getBooker().getName(), bookings.get(0).getBooker().getName(), "Имена не совпадают");
         assertEquals(booking.getStatus(), bookings.get(0).getStatus(), "Статусы не совпадают");
     }
-}
\ No newline at end of file
+
+    @Test
+    void getBookerBookingsAfterCursorTest() {
+        final LocalDateTime start = LocalDateTime.now().plusDays(5).truncatedTo(ChronoUnit.SECONDS);
+        final Booking later = bookingRepository.save(new Booking(2L, start,
+                LocalDateTime.now().plusDays(10), item, booker, Status.WAITING));
+        final Booking sameStart = bookingRepository.save(new Booking(3L, later.getStart(),
+                LocalDateTime.now().plusDays(11), item, booker, Status.WAITING));
+
+        final List<Booking> firstPage = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(), Status.ALL,
+                LocalDateTime.now(), null, 0, 2, Booking.class);
+
+        assertEquals(List.of(sameStart.getId(), later.getId()),
+                List.of(firstPage.get(0).getId(), firstPage.get(1).getId()), "Порядок броней нарушен");
+
+        final List<Booking> secondPage = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(), Status.ALL,
+                LocalDateTime.now(), new BookingCursor(later.getStart(), later.getId()), 0, 2, Booking.class);
+
+        assertEquals(1, secondPage.size(), "Неверный размер страницы");
+        assertEquals(booking.getId(), secondPage.get(0).getId(), "Идентификаторы не совпадают");
+    }
+
+    //Без курсора from задает номер первой строки, а не номер страницы
+    @Test
+    void getBookerBookingsFromOffsetTest() {
+        final LocalDateTime start = LocalDateTime.now().plusDays(5).truncatedTo(ChronoUnit.SECONDS);
+        final Booking later = bookingRepository.save(new Booking(2L, start,
+                LocalDateTime.now().plusDays(10), item, booker, Status.WAITING));
+        bookingRepository.save(new Booking(3L, later.getStart(), LocalDateTime.now().plusDays(11), item, booker,
+                Status.WAITING));
+
+        final List<Booking> bookings = bookingRepository.findBookings(BookingParty.BOOKER, booker.getId(), Status.ALL,
+                LocalDateTime.now(), null, 1, 10, Booking.class);
+
+        assertEquals(List.of(later.getId(), booking.getId()),
+                bookings.stream().map(Booking::getId).collect(Collectors.toList()), "Неверное смещение страницы");
+    }
+
+    @Test
+    void getLastAndNextBookingsTest() {
+        final Item otherItem = itemRepository.save(new Item(2L, "otherItem", "otherDescription", true, owner,
+                null));
+        final Booking earlier = bookingRepository.save(new Booking(2L, LocalDateTime.now().minusDays(10),
+                LocalDateTime.now().minusDays(8), item, booker, Status.APPROVED));
+        final Booking next = bookingRepository.save(new Booking(3L, LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(2), item, booker, Status.APPROVED));
+        bookingRepository.save(new Booking(4L, LocalDateTime.now().plusDays(3),
+                LocalDateTime.now().plusDays(4), item, booker, Status.WAITING));
+
+        final List<BookingDtoForItemView> views = bookingRepository.findLastAndNextBookings(
+                List.of(item.getId(), otherItem.getId()), LocalDateTime.now());
+
+        assertEquals(2, views.size(), "Неверное количество броней");
+        for (BookingDtoForItemView view : views) {
+            assertEquals(item.getId(), view.getItemId(), "Идентификаторы вещей не совпадают");
+            assertEquals(booker.getId(), view.getBookerId(), "Идентификаторы арендаторов не совпадают");
+            assertEquals(view.getLast() ? booking.getId() : next.getId(), view.getId(), "Идентификаторы не совпадают");
+        }
+        assertNotEquals(earlier.getId(), views.get(0).getId(), "Получена не последняя бронь");
+    }
+
+    //Смена владельца вещи каскадом переносится в брони: списки нового владельца содержат бронь, старого - нет
+    @Test
+    void ownerTransferUpdatesBookingOwnerTest() {
+        final User newOwner = userRepository.save(new User(3L, "testUser3", "test3@yandex.ru"));
+
+        assertEquals(owner.getId(), booking.getOwnerId(), "Владелец не скопирован в бронь");
+
+        item.setOwner(newOwner);
+        itemRepository.save(item);
+        resetStatistics();
+
+        final List<BookingDtoShort> newOwnerBookings = bookingRepository.findBookings(BookingParty.OWNER,
+                newOwner.getId(), Status.ALL, LocalDateTime.now(), null, 0, 10, BookingDtoShort.class);
+
+        assertEquals(List.of(booking.getId()), newOwnerBookings.stream().map(BookingDtoShort::getId)
+                .collect(Collectors.toList()), "Бронь не перешла к новому владельцу");
+        assertTrue(bookingRepository.findBookings(BookingParty.OWNER, owner.getId(), Status.ALL, LocalDateTime.now(),
+                null, 0, 10, BookingDtoShort.class).isEmpty(), "Бронь осталась у старого владельца");
+        assertEquals(newOwner.getId(), bookingRepository.findById(booking.getId()).orElseThrow().getOwnerId(),
+                "Владелец брони не обновлен");
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.bookingTest;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,23 +10,34 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingCreateResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoShort;
 import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.enums.BookingParty;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.booking.service.BookingStatsCounter;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.AvailableException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemViewCache;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
@@ -56,7 +68,11 @@ public class BookingServiceTest {
         itemRepository = mock(ItemRepository.class);
         userRepository = mock(UserRepository.class);
         bookingRepository = mock(BookingRepository.class);
-        bookingService = new BookingServiceImpl(bookingRepository, itemRepository, userRepository);
+        bookingService = new BookingServiceImpl(bookingRepository, itemRepository, userRepository,
+                new BookingIntervalIndex(bookingRepository), new BookingStatsCounter(bookingRepository),
+                new ItemViewCache(new SimpleMeterRegistry(), Jackson2ObjectMapperBuilder.json().build(),
+                        DataSize.ofMegabytes(1), Duration.ofMinutes(1)),
+                new IdDirectory(userRepository, itemRepository));
         booking = createBookingExample();
     }
 
@@ -71,6 +87,11 @@ public class BookingServiceTest {
         return booking;
     }
 
+    private static BookingDtoShort toBookingDtoShort(Booking booking) {
+        return new BookingDtoShort(booking.getId(), booking.getStart(), booking.getEnd(), booking.getStatus(),
+                booking.getItem().getId(), booking.getItem().getName(), booking.getBooker().getId());
+    }
+
     private static BookingDtoSimple toBookingDtoSimple(Booking booking) {
         return new BookingDtoSimple(booking.getId(), booking.getStart(), booking.getEnd(), booking.getItem().getId());
     }
@@ -98,6 +119,29 @@ public class BookingServiceTest {
         verify(bookingRepository, times(1)).save(any(Booking.class));
     }
 
+    //Создание брони, пересекающейся с существующей
+    @Test
+    public void createOverlappingBooking() {
+        Long bookerId = booking.getBooker().getId();
+        Long itemId = booking.getItem().getId();
+
+        when(userRepository.findById(bookerId)).thenReturn(Optional.of(booking.getBooker()));
+        when(itemRepository.findById(itemId)).thenReturn(Optional.of(booking.getItem()));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.create(toBookingDtoSimple(booking), bookerId);
+
+        BookingDtoSimple overlapping = new BookingDtoSimple(null, booking.getStart().plusHours(1),
+                booking.getEnd().plusDays(1), itemId);
+
+        Throwable throwable = assertThrows(AvailableException.class, () ->
+                bookingService.create(overlapping, bookerId));
+
+        assertEquals("Вещь уже забронирована на это время", throwable.getMessage(),
+                "Текст ошибки валидации разный");
+        verify(bookingRepository, times(1)).save(any(Booking.class));
+    }
+
     //Получение брони
     @Test
     public void getBooking() {
@@ -124,10 +168,11 @@ public class BookingServiceTest {
         User booker = booking.getBooker();
 
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.findByBookerId(bookerId, PageRequest.of(0, 20, Sort.by("start")
-                .descending()))).thenReturn(Collections.singletonList(booking));
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(ALL),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class)))
+                .thenReturn(Collections.singletonList(booking));
 
-        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "ALL", 0, 20);
+        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "ALL", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -137,8 +182,95 @@ public class BookingServiceTest {
                 "Имена не совпадают");
         assertEquals(booking.getStatus(), bookingDtoList.get(0).getStatus(), "Статусы не совпадают");
 
-        verify(bookingRepository, times(1)).findByBookerId(bookerId,
-                PageRequest.of(0, 20, Sort.by("start").descending()));
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(ALL),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class));
+    }
+
+    //Получение всех броней в кратком виде
+    @Test
+    public void getAllShortBookings() {
+        Long bookerId = booking.getBooker().getId();
+        BookingDtoShort bookingDtoShort = toBookingDtoShort(booking);
+
+        when(userRepository.findById(bookerId)).thenReturn(Optional.of(booking.getBooker()));
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), anyLong(), eq(PAST),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(BookingDtoShort.class)))
+                .thenReturn(List.of(bookingDtoShort));
+
+        final List<BookingDtoShort> bookingDtoList = bookingService.getAllShort(bookerId, "PAST", 0, 20, null);
+
+        assertEquals(List.of(bookingDtoShort), bookingDtoList, "Брони не совпадают");
+
+        verify(bookingRepository, never()).findBookings(eq(BookingParty.BOOKER), anyLong(), eq(PAST),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class));
+    }
+
+    //Получение всех броней владельца в кратком виде
+    @Test
+    public void getAllShortUserBookings() {
+        Long itemUserId = booking.getItem().getOwner().getId();
+        BookingDtoShort bookingDtoShort = toBookingDtoShort(booking);
+
+        when(userRepository.findById(itemUserId)).thenReturn(Optional.of(booking.getItem().getOwner()));
+        when(bookingRepository.findBookings(eq(BookingParty.OWNER), eq(itemUserId), eq(WAITING),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(BookingDtoShort.class)))
+                .thenReturn(List.of(bookingDtoShort));
+
+        final List<BookingDtoShort> bookingDtoList = bookingService.getAllShortBookingByOwner(itemUserId, "WAITING",
+                0, 20, null);
+
+        assertEquals(List.of(bookingDtoShort), bookingDtoList, "Брони не совпадают");
+    }
+
+    //Получение броней после курсора
+    @Test
+    public void getAllBookingsAfterCursor() {
+        Long bookerId = booker.getId();
+        BookingCursor cursor = new BookingCursor(booking.getStart().plusDays(1), 10L);
+
+        when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(ALL),
+                any(LocalDateTime.class), eq(cursor), eq(0), eq(5), eq(Booking.class)))
+                .thenReturn(Collections.singletonList(booking));
+
+        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "ALL", 40, 5, cursor.encode());
+
+        assertEquals(1, bookingDtoList.size(), "Бронь отсутствует");
+        assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
+
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(ALL),
+                any(LocalDateTime.class), eq(cursor), eq(0), eq(5), eq(Booking.class));
+    }
+
+    //Без курсора from передается в запрос как смещение
+    @Test
+    public void getAllBookingsFromOffset() {
+        Long bookerId = booker.getId();
+
+        when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(ALL),
+                any(LocalDateTime.class), isNull(), eq(5), eq(10), eq(Booking.class)))
+                .thenReturn(Collections.singletonList(booking));
+
+        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "ALL", 5, 10, null);
+
+        assertEquals(1, bookingDtoList.size(), "Бронь отсутствует");
+
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(ALL),
+                any(LocalDateTime.class), isNull(), eq(5), eq(10), eq(Booking.class));
+    }
+
+    //Получение броней с некорректным курсором
+    @Test
+    public void getAllBookingsInvalidCursor() {
+        Long bookerId = booker.getId();
+
+        when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
+
+        Throwable throwable = assertThrows(ValidationException.class, () ->
+                bookingService.getAllBookingByOwner(bookerId, "ALL", 0, 20, "not-a-cursor"));
+
+        assertEquals("Некорректный курсор страницы", throwable.getMessage(), "Текст ошибки валидации разный");
     }
 
     //Получение всех броней со статусом CURRENT
@@ -148,10 +280,11 @@ public class BookingServiceTest {
 
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
         when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
-        when(bookingRepository.findCurrentBookingsByBookerId(anyLong(), any(LocalDateTime.class), any()))
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), anyLong(), eq(CURRENT),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "CURRENT", 0, 20);
+        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "CURRENT", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -161,8 +294,8 @@ public class BookingServiceTest {
                 "Имена не совпадают");
         assertEquals(booking.getStatus(), bookingDtoList.get(0).getStatus(), "Статусы не совпадают");
 
-        verify(bookingRepository, times(1)).findCurrentBookingsByBookerId(anyLong(),
-                any(LocalDateTime.class), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), anyLong(), eq(CURRENT),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class));
     }
 
     //Получение всех броней со статусом PAST
@@ -172,10 +305,11 @@ public class BookingServiceTest {
 
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
         when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
-        when(bookingRepository.findBookingsByBookerIdAndEndIsBefore(anyLong(), any(LocalDateTime.class), any()))
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), anyLong(), eq(PAST),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "PAST", 0, 20);
+        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "PAST", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -185,8 +319,8 @@ public class BookingServiceTest {
                 "Имена не совпадают");
         assertEquals(booking.getStatus(), bookingDtoList.get(0).getStatus(), "Статусы не совпадают");
 
-        verify(bookingRepository, times(1)).findBookingsByBookerIdAndEndIsBefore(anyLong(),
-                any(LocalDateTime.class), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), anyLong(), eq(PAST),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class));
     }
 
     //Получение всех броней со статусом FUTURE
@@ -196,10 +330,11 @@ public class BookingServiceTest {
 
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
         when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
-        when(bookingRepository.findByBookerIdAndStartAfter(anyLong(), any(LocalDateTime.class), any()))
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), anyLong(), eq(FUTURE),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "FUTURE", 0, 20);
+        final List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "FUTURE", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -209,8 +344,8 @@ public class BookingServiceTest {
                 "Имена не совпадают");
         assertEquals(booking.getStatus(), bookingDtoList.get(0).getStatus(), "Статусы не совпадают");
 
-        verify(bookingRepository, times(1)).findByBookerIdAndStartAfter(anyLong(),
-                any(LocalDateTime.class), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), anyLong(), eq(FUTURE),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class));
     }
 
     //Получение всех броней со статусом WAITING
@@ -222,11 +357,11 @@ public class BookingServiceTest {
         booking.setStatus(WAITING);
 
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.findBookingsByBookerIdAndStatus(bookerId, WAITING,
-                PageRequest.of(0, 20, Sort.by("start").descending())))
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(WAITING),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "WAITING", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "WAITING", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -235,8 +370,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).findBookingsByBookerIdAndStatus(bookerId, WAITING,
-                PageRequest.of(0, 20, Sort.by("start").descending()));
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(WAITING),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class));
     }
 
     //Получение всех броней со статусом REJECTED
@@ -248,11 +383,11 @@ public class BookingServiceTest {
         booking.setStatus(REJECTED);
 
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.findBookingsByBookerIdAndStatus(bookerId, REJECTED,
-                PageRequest.of(0, 20, Sort.by("start").descending())))
+        when(bookingRepository.findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(REJECTED),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "REJECTED", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAll(bookerId, "REJECTED", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -261,8 +396,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).findBookingsByBookerIdAndStatus(bookerId, REJECTED,
-                PageRequest.of(0, 20, Sort.by("start").descending()));
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.BOOKER), eq(bookerId), eq(REJECTED),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class));
     }
 
     //Получение всех бронирований пользователя
@@ -272,11 +407,11 @@ public class BookingServiceTest {
         Long itemUserId = booking.getItem().getOwner().getId();
 
         when(userRepository.findById(itemUserId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.searchBookingByItemOwnerId(itemUserId,
-                PageRequest.of(0, 20, Sort.by("start").descending())))
+        when(bookingRepository.findBookings(eq(BookingParty.OWNER), eq(itemUserId), eq(ALL),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "ALL", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "ALL", 0, 20, null);
 
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
@@ -286,8 +421,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).searchBookingByItemOwnerId(itemUserId,
-                PageRequest.of(0, 20, Sort.by("start").descending()));
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.OWNER), eq(itemUserId), eq(ALL),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class));
     }
 
     //Получение всех бронирований пользователя со статусом CURRENT
@@ -297,10 +432,11 @@ public class BookingServiceTest {
         Long itemUserId = booking.getItem().getOwner().getId();
 
         when(userRepository.findById(itemUserId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.findCurrentBookingsByItemOwnerId(anyLong(), any(LocalDateTime.class), any()))
+        when(bookingRepository.findBookings(eq(BookingParty.OWNER), anyLong(), eq(CURRENT),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "CURRENT", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "CURRENT", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -309,8 +445,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).findCurrentBookingsByItemOwnerId(anyLong(),
-                any(LocalDateTime.class), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.OWNER), anyLong(), eq(CURRENT),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class));
     }
 
     //Получение всех бронирований пользователя со статусом PAST
@@ -320,10 +456,11 @@ public class BookingServiceTest {
         Long itemUserId = booking.getItem().getOwner().getId();
 
         when(userRepository.findById(itemUserId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.findBookingsByItemOwnerIdAndEndIsBefore(anyLong(), any(LocalDateTime.class), any()))
+        when(bookingRepository.findBookings(eq(BookingParty.OWNER), anyLong(), eq(PAST),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "PAST", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "PAST", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -332,8 +469,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).findBookingsByItemOwnerIdAndEndIsBefore(anyLong(),
-                any(LocalDateTime.class), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.OWNER), anyLong(), eq(PAST),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class));
     }
 
     //Получение всех бронирований пользователя со статусом FUTURE
@@ -343,10 +480,11 @@ public class BookingServiceTest {
         Long itemUserId = booking.getItem().getOwner().getId();
 
         when(userRepository.findById(itemUserId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.searchBookingByItemOwnerIdAndStartIsAfter(anyLong(), any(LocalDateTime.class), any()))
+        when(bookingRepository.findBookings(eq(BookingParty.OWNER), anyLong(), eq(FUTURE),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "FUTURE", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "FUTURE", 0, 20, null);
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
         assertEquals(booking.getId(), bookingDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -355,8 +493,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).searchBookingByItemOwnerIdAndStartIsAfter(anyLong(),
-                any(LocalDateTime.class), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.OWNER), anyLong(), eq(FUTURE),
+                any(LocalDateTime.class), any(), anyInt(), anyInt(), eq(Booking.class));
     }
 
     //Получение всех бронирований пользователя со статусом WAITING
@@ -368,11 +506,11 @@ public class BookingServiceTest {
         booking.setStatus(WAITING);
 
         when(userRepository.findById(itemUserId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.findBookingsByItemOwnerIdAndStatus(itemUserId, WAITING,
-                PageRequest.of(0, 20, Sort.by("start").descending())))
+        when(bookingRepository.findBookings(eq(BookingParty.OWNER), eq(itemUserId), eq(WAITING),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "WAITING", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "WAITING", 0, 20, null);
 
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
@@ -382,8 +520,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).findBookingsByItemOwnerIdAndStatus(itemUserId, WAITING,
-                PageRequest.of(0, 20, Sort.by("start").descending()));
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.OWNER), eq(itemUserId), eq(WAITING),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class));
     }
 
     //Получение всех бронирований пользователя со статусом REJECTED
@@ -395,11 +533,11 @@ public class BookingServiceTest {
         booking.setStatus(REJECTED);
 
         when(userRepository.findById(itemUserId)).thenReturn(Optional.of(booker));
-        when(bookingRepository.findBookingsByItemOwnerIdAndStatus(itemUserId, REJECTED,
-                PageRequest.of(0, 20, Sort.by("start").descending())))
+        when(bookingRepository.findBookings(eq(BookingParty.OWNER), eq(itemUserId), eq(REJECTED),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class)))
                 .thenReturn(Collections.singletonList(booking));
 
-        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "REJECTED", 0, 20);
+        List<BookingDto> bookingDtoList = bookingService.getAllBookingByOwner(itemUserId, "REJECTED", 0, 20, null);
 
 
         assertEquals(bookingDtoList.size(), 1, "Бронь отсутствует");
@@ -409,8 +547,8 @@ public class BookingServiceTest {
         assertEquals(booking.getBooker().getName(), bookingDtoList.get(0).getBooker().getName(),
                 "Имена не совпадают");
 
-        verify(bookingRepository, times(1)).findBookingsByItemOwnerIdAndStatus(itemUserId, REJECTED,
-                PageRequest.of(0, 20, Sort.by("start").descending()));
+        verify(bookingRepository, times(1)).findBookings(eq(BookingParty.OWNER), eq(itemUserId), eq(REJECTED),
+                any(LocalDateTime.class), isNull(), eq(0), eq(20), eq(Booking.class));
     }
 
     //Подтверждение брони не владельцем вещи
@@ -431,6 +569,126 @@ public class BookingServiceTest {
         verify(bookingRepository, times(1)).findById(bookingId);
     }
 
+    //Подтверждение брони условным обновлением статуса
+    @Test
+    public void approveBooking() {
+        Long bookingId = booking.getId();
+        Long itemUserId = booking.getItem().getOwner().getId();
+
+        when(bookingRepository.updateStatusByOwner(bookingId, itemUserId, APPROVED, WAITING)).thenReturn(1);
+        when(bookingRepository.findById(bookingId)).thenAnswer(invocation -> {
+            booking.setStatus(APPROVED);
+            return Optional.of(booking);
+        });
+
+        BookingDto bookingDto = bookingService.approve(itemUserId, bookingId, true);
+
+        assertEquals(APPROVED, bookingDto.getStatus(), "Статусы не совпадают");
+
+        verify(bookingRepository, times(1)).updateStatusByOwner(bookingId, itemUserId, APPROVED, WAITING);
+        verify(bookingRepository, never()).save(any());
+    }
+
+    //Отклонение уже отклоненной брони
+    @Test
+    public void rejectBookingRejected() {
+        Long bookingId = booking.getId();
+        Long itemUserId = booking.getItem().getOwner().getId();
+
+        booking.setStatus(REJECTED);
+
+        when(bookingRepository.updateStatusByOwner(bookingId, itemUserId, REJECTED, WAITING)).thenReturn(0);
+        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
+
+        Throwable throwable = assertThrows(ValidationException.class, () -> bookingService.approve(itemUserId,
+                bookingId, false));
+
+        assertEquals("Бронирование уже рассмотрено", throwable.getMessage(), "Текст ошибки валидации разный");
+    }
+
+    //Пакетное подтверждение: итог по каждой брони
+    @Test
+    public void approveAllBookings() {
+        Long itemUserId = booking.getItem().getOwner().getId();
+        Booking approved = new Booking(7L, booking.getStart(), booking.getEnd(), booking.getItem(),
+                booking.getBooker(), APPROVED);
+        List<BookingDecisionDto> decisions = List.of(new BookingDecisionDto(booking.getId(), false),
+                new BookingDecisionDto(approved.getId(), true), new BookingDecisionDto(99L, true));
+
+        when(bookingRepository.updateStatusesByOwner(itemUserId, List.of(booking.getId(), approved.getId(), 99L),
+                List.of(REJECTED, APPROVED, APPROVED), WAITING)).thenReturn(new int[]{1, 0, 0});
+        when(bookingRepository.findAllByIdIn(List.of(approved.getId(), 99L))).thenReturn(List.of(approved));
+
+        List<BookingDecisionResultDto> results = bookingService.approveAll(itemUserId, decisions);
+
+        assertEquals(List.of(new BookingDecisionResultDto(booking.getId(), REJECTED, null),
+                new BookingDecisionResultDto(approved.getId(), APPROVED, "Бронирование уже подтверждено"),
+                new BookingDecisionResultDto(99L, null, "Неверный идентификатор брони")), results,
+                "Итоги решений не совпадают");
+    }
+
+    //Пакетное подтверждение чужой брони не раскрывает ее статус
+    @Test
+    public void approveAllBookingsForeign() {
+        long strangerId = 42L;
+
+        when(bookingRepository.updateStatusesByOwner(strangerId, List.of(booking.getId()), List.of(APPROVED),
+                WAITING)).thenReturn(new int[]{0});
+        when(bookingRepository.findAllByIdIn(List.of(booking.getId()))).thenReturn(List.of(booking));
+
+        List<BookingDecisionResultDto> results = bookingService.approveAll(strangerId,
+                List.of(new BookingDecisionDto(booking.getId(), true)));
+
+        assertEquals(List.of(new BookingDecisionResultDto(booking.getId(), null,
+                "Подтвердить бронирование может только владелец вещи")), results, "Статус чужой брони раскрыт");
+    }
+
+    //Пакетное создание: ошибки отдельных броней не отменяют остальные
+    @Test
+    public void createAllBookings() {
+        Item item = booking.getItem();
+        Item unavailable = new Item(2L, "testUnavailable", "testDescription", false, item.getOwner(), null);
+        LocalDateTime start = booking.getStart();
+        LocalDateTime end = booking.getEnd();
+
+        when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item, unavailable));
+        when(bookingRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Booking> bookings = invocation.getArgument(0);
+            bookings.forEach(saved -> saved.setId(10L));
+            return bookings;
+        });
+
+        List<BookingCreateResultDto> results = bookingService.createAll(List.of(
+                new BookingDtoSimple(null, start, end, item.getId()),
+                new BookingDtoSimple(null, end, start, item.getId()),
+                new BookingDtoSimple(null, start, end, unavailable.getId()),
+                new BookingDtoSimple(null, start, end, 99L),
+                new BookingDtoSimple(null, start, end, item.getId())), booker.getId());
+
+        assertEquals(List.of(new BookingCreateResultDto(new BookingDtoShort(10L, start, end, WAITING,
+                        item.getId(), item.getName(), booker.getId()), null),
+                new BookingCreateResultDto(null, "Время окончания не может быть больше времени начала"),
+                new BookingCreateResultDto(null, "Эта вещь недоступна для аренды"),
+                new BookingCreateResultDto(null, "Неверный идентификатор вещи"),
+                new BookingCreateResultDto(null, "Вещь уже забронирована на это время")), results,
+                "Итоги создания не совпадают");
+        verify(bookingRepository, times(1)).saveAll(any());
+        verify(itemRepository, never()).findById(anyLong());
+    }
+
+    //Пакетное подтверждение без решения
+    @Test
+    public void approveAllBookingsApproveNull() {
+        List<BookingDecisionDto> decisions = List.of(new BookingDecisionDto(booking.getId(), null));
+
+        Throwable throwable = assertThrows(ValidationException.class, () -> bookingService.approveAll(1L,
+                decisions));
+
+        assertEquals("Необходимо подтвердить бронирование", throwable.getMessage(), "Текст ошибки валидации разный");
+        verify(bookingRepository, never()).updateStatusesByOwner(anyLong(), any(), any(), any());
+    }
+
     //Подтверждение подтвержденной брони
     @Test
     public void approveBookingApproved() {
@@ -537,7 +795,7 @@ public class BookingServiceTest {
     @Test
     public void getAllBookingsUnknownUser() {
         Throwable throwable = assertThrows(NotFoundException.class, () ->
-                bookingService.getAll(3L, "ALL", 0, 20));
+                bookingService.getAll(3L, "ALL", 0, 20, null));
 
         assertEquals("Неверный идентификатор пользователя", throwable.getMessage(),
                 "Текст ошибки валидации разный");
@@ -552,7 +810,7 @@ public class BookingServiceTest {
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
 
         Throwable throwable = assertThrows(ValidationException.class, () ->
-                bookingService.getAll(bookerId, "APPROVED", 0, 20));
+                bookingService.getAll(bookerId, "APPROVED", 0, 20, null));
 
         assertEquals("Unknown state: UNSUPPORTED_STATUS", throwable.getMessage(),
                 "Текст ошибки валидации разный");
@@ -567,7 +825,7 @@ public class BookingServiceTest {
         when(userRepository.findById(bookerId)).thenReturn(Optional.of(booker));
 
         Throwable throwable = assertThrows(ValidationException.class, () ->
-                bookingService.getAllBookingByOwner(bookerId, "APPROVED", 0, 20));
+                bookingService.getAllBookingByOwner(bookerId, "APPROVED", 0, 20, null));
 
         assertEquals("Unknown state: UNSUPPORTED_STATUS", throwable.getMessage(),
                 "Текст ошибки валидации разный");
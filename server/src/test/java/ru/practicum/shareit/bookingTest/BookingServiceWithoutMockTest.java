@@ -1,15 +1,27 @@
 package ru.practicum.shareit.bookingTest;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Profile;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingCreateResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingStatsCounter;
+import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
@@ -18,9 +30,19 @@ import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
+import javax.persistence.EntityManagerFactory;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static ru.practicum.shareit.booking.enums.Status.WAITING;
 
 @SpringBootTest
@@ -29,8 +51,11 @@ import static ru.practicum.shareit.booking.enums.Status.WAITING;
 @Profile("test")
 public class BookingServiceWithoutMockTest {
     private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
     private final UserService userService;
     private final ItemService itemService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final PlatformTransactionManager transactionManager;
     private final User owner = new User(1L, "testOwner", "testOwner@yandex.ru");
     private final User booker = new User(2L, "testBooker", "testBooker@yandex.ru");
     private final Item item = new Item(1L, "testItem", "testDescription", true, owner,
@@ -74,4 +99,169 @@ public class BookingServiceWithoutMockTest {
         assertEquals(booking.getBooker().getName(), bookingDto1.getBooker().getName(), "Имена не совпадают");
         assertEquals(booking.getStatus(), bookingDto1.getStatus(), "Статусы не совпадают");
     }
-}
\ No newline at end of file
+
+    //Список броней: пользователь проверяется по справочнику в памяти, к базе один запрос на страницу со связями
+    @Test
+    public void getAllBookingsStatementCount() {
+        UserDto ownerDto = userService.create(UserMapper.toUserDto(owner));
+        UserDto bookerDto = userService.create(UserMapper.toUserDto(booker));
+
+        itemService.create(ownerDto.getId(), ItemMapper.toItemDto(item));
+        bookingService.create(toBookingDtoSimple(booking), bookerDto.getId());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BookingDto> bookings = bookingService.getAll(bookerDto.getId(), "ALL", 0, 20, null);
+
+        assertEquals(1, bookings.size(), "Неверное количество броней");
+        assertEquals(owner.getName(), bookings.get(0).getItem().getOwner().getName(), "Имена не совпадают");
+        assertEquals(1, statistics.getPrepareStatementCount(), "Лишние запросы к базе");
+    }
+
+    //Из одновременных решений владельца применяется ровно одно
+    @Test
+    public void concurrentApproveAppliesOnce() throws Exception {
+        UserDto ownerDto = userService.create(UserMapper.toUserDto(owner));
+        UserDto bookerDto = userService.create(UserMapper.toUserDto(booker));
+
+        itemService.create(ownerDto.getId(), ItemMapper.toItemDto(item));
+        BookingDto bookingDto = bookingService.create(toBookingDtoSimple(booking), bookerDto.getId());
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Status>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            boolean approved = i % 2 == 0;
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return bookingService.approve(ownerDto.getId(), bookingDto.getId(), approved).getStatus();
+                } catch (ValidationException e) {
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+
+        List<Status> applied = new ArrayList<>();
+        for (Future<Status> result : results) {
+            Status status = result.get(10, TimeUnit.SECONDS);
+            if (status != null) {
+                applied.add(status);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, applied.size(), "Применено несколько решений");
+        assertEquals(applied.get(0), bookingService.getBooking(bookingDto.getId(), ownerDto.getId()).getStatus(),
+                "Статус брони не совпадает с примененным решением");
+    }
+
+    //Пакетное подтверждение применяется в базе и отдает итог по каждой брони
+    @Test
+    public void approveAllBookings() {
+        UserDto ownerDto = userService.create(UserMapper.toUserDto(owner));
+        UserDto bookerDto = userService.create(UserMapper.toUserDto(booker));
+
+        itemService.create(ownerDto.getId(), ItemMapper.toItemDto(item));
+        BookingDto first = bookingService.create(toBookingDtoSimple(booking), bookerDto.getId());
+        BookingDto second = bookingService.create(new BookingDtoSimple(null, booking.getEnd().plusDays(1),
+                booking.getEnd().plusDays(2), first.getItem().getId()), bookerDto.getId());
+
+        List<BookingDecisionResultDto> results = bookingService.approveAll(ownerDto.getId(), List.of(
+                new BookingDecisionDto(first.getId(), true),
+                new BookingDecisionDto(second.getId(), false),
+                new BookingDecisionDto(first.getId(), false)));
+
+        assertEquals(List.of(new BookingDecisionResultDto(first.getId(), Status.APPROVED, null),
+                new BookingDecisionResultDto(second.getId(), Status.REJECTED, null),
+                new BookingDecisionResultDto(first.getId(), Status.APPROVED, "Бронирование уже подтверждено")),
+                results, "Итоги решений не совпадают");
+        assertEquals(Status.REJECTED, bookingService.getBooking(second.getId(), ownerDto.getId()).getStatus(),
+                "Статус брони не сохранен");
+
+        //интервал отклоненной брони освобожден после фиксации транзакции
+        bookingService.create(new BookingDtoSimple(null, booking.getEnd().plusDays(1),
+                booking.getEnd().plusDays(2), first.getItem().getId()), bookerDto.getId());
+    }
+
+    //Пакетное создание: брони вставляются одним пакетом, пересечения внутри пакета отклоняются
+    @Test
+    public void createAllBookingsBatchesInserts() {
+        UserDto ownerDto = userService.create(UserMapper.toUserDto(owner));
+        UserDto bookerDto = userService.create(UserMapper.toUserDto(booker));
+        long itemId = itemService.create(ownerDto.getId(), ItemMapper.toItemDto(item)).getId();
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        List<BookingDtoSimple> bookings = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            bookings.add(new BookingDtoSimple(null, start.plusDays(i), start.plusDays(i).plusHours(1), itemId));
+        }
+        bookings.add(new BookingDtoSimple(null, start, start.plusHours(2), itemId));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BookingCreateResultDto> results = bookingService.createAll(bookings, bookerDto.getId());
+
+        assertEquals(10, statistics.getEntityInsertCount(), "Неверное количество вставленных броней");
+        //пользователь, вещи, выборка из последовательности (при первом выделении - дважды) и одна пакетная вставка
+        assertTrue(statistics.getPrepareStatementCount() <= 5, "Лишние запросы к базе");
+        assertEquals("Вещь уже забронирована на это время", results.get(10).getError(),
+                "Пересечение внутри пакета не отклонено");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(bookings.get(i).getStart(), bookingService.getBooking(results.get(i).getBooking().getId(),
+                    bookerDto.getId()).getStart(), "Время начала не совпадает");
+        }
+    }
+
+    //Откат транзакции пакетного создания освобождает зарезервированные интервалы
+    @Test
+    public void createAllRollbackReleasesIntervals() {
+        UserDto ownerDto = userService.create(UserMapper.toUserDto(owner));
+        UserDto bookerDto = userService.create(UserMapper.toUserDto(booker));
+        long itemId = itemService.create(ownerDto.getId(), ItemMapper.toItemDto(item)).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        BookingDtoSimple bookingDtoSimple = new BookingDtoSimple(null, start, start.plusHours(1), itemId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookingService.createAll(List.of(bookingDtoSimple), bookerDto.getId());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, bookingRepository.count(), "Брони сохранены после отката");
+        assertEquals(start, bookingService.create(bookingDtoSimple, bookerDto.getId()).getStart(),
+                "Интервал не освобожден после отката");
+    }
+
+    //Счетчики меняются при создании и решении и совпадают с загруженными из базы заново
+    @Test
+    public void statsFollowCreateAndApprove() {
+        UserDto ownerDto = userService.create(UserMapper.toUserDto(owner));
+        UserDto bookerDto = userService.create(UserMapper.toUserDto(booker));
+        long itemId = itemService.create(ownerDto.getId(), ItemMapper.toItemDto(item)).getId();
+
+        BookingDto current = bookingService.create(toBookingDtoSimple(booking), bookerDto.getId());
+        BookingDto future = bookingService.create(new BookingDtoSimple(null, booking.getEnd().plusDays(1),
+                booking.getEnd().plusDays(2), itemId), bookerDto.getId());
+        bookingService.approve(ownerDto.getId(), current.getId(), true);
+        bookingService.approveAll(ownerDto.getId(), List.of(new BookingDecisionDto(future.getId(), false)));
+
+        BookingStatsDto expected = new BookingStatsDto(2, 1, 0, 1, 0, 1);
+
+        assertEquals(expected, bookingService.getStats(bookerDto.getId()), "Неверные счетчики арендатора");
+        assertEquals(expected, bookingService.getOwnerStats(ownerDto.getId()), "Неверные счетчики владельца");
+        assertEquals(new BookingStatsDto(), bookingService.getStats(ownerDto.getId()),
+                "У владельца нет своих броней");
+
+        BookingStatsCounter reloaded = new BookingStatsCounter(bookingRepository);
+        reloaded.load();
+
+        assertEquals(expected, reloaded.getBookerStats(bookerDto.getId()), "Счетчики после загрузки расходятся");
+        assertEquals(expected, reloaded.getOwnerStats(ownerDto.getId()), "Счетчики после загрузки расходятся");
+    }
+}
@@ -0,0 +1,160 @@
+package ru.practicum.shareit.bookingTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.dto.BookingCountView;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.dto.BookingTimelineView;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingStatsCounter;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookingStatsCounterTest {
+    private final User owner = new User(1L, "testOwner", "testOwner@yandex.ru");
+    private final User booker = new User(2L, "testBooker", "testBooker@yandex.ru");
+    private final Item item = new Item(1L, "testItem", "testDescription", true, owner, null);
+
+    private BookingRepository bookingRepository;
+    private BookingStatsCounter bookingStatsCounter;
+
+    @BeforeEach
+    void beforeEach() {
+        bookingRepository = mock(BookingRepository.class);
+        bookingStatsCounter = new BookingStatsCounter(bookingRepository);
+    }
+
+    //Новая бронь и решение владельца меняют счетчики арендатора и владельца
+    @Test
+    void addedAndDecided() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Booking booking = new Booking(1L, start, start.plusDays(1), item, booker, Status.WAITING);
+
+        bookingStatsCounter.added(booking);
+
+        assertEquals(new BookingStatsDto(1, 0, 0, 1, 1, 0), bookingStatsCounter.getBookerStats(booker.getId()),
+                "Неверные счетчики арендатора");
+        assertEquals(new BookingStatsDto(1, 0, 0, 1, 1, 0), bookingStatsCounter.getOwnerStats(owner.getId()),
+                "Неверные счетчики владельца");
+
+        bookingStatsCounter.statusChanged(booking.getId(), Status.REJECTED);
+        bookingStatsCounter.statusChanged(booking.getId(), Status.APPROVED);
+
+        assertEquals(new BookingStatsDto(1, 0, 0, 1, 0, 1), bookingStatsCounter.getBookerStats(booker.getId()),
+                "Решение по брони учтено неверно");
+        assertEquals(new BookingStatsDto(), bookingStatsCounter.getBookerStats(owner.getId()),
+                "У владельца нет своих броней");
+    }
+
+    //Переходы FUTURE -> CURRENT -> PAST по времени
+    @Test
+    void rolloverByTime() throws InterruptedException {
+        LocalDateTime start = LocalDateTime.now().plusNanos(200_000_000);
+        Booking booking = new Booking(1L, start, start.plusNanos(200_000_000), item, booker, Status.APPROVED);
+
+        bookingStatsCounter.added(booking);
+        assertEquals(1, bookingStatsCounter.getBookerStats(booker.getId()).getFuture(), "Бронь не в будущих");
+
+        Thread.sleep(300);
+        BookingStatsDto current = bookingStatsCounter.getBookerStats(booker.getId());
+        assertEquals(0, current.getFuture(), "Бронь осталась в будущих");
+        assertEquals(1, current.getCurrent(), "Бронь не в текущих");
+
+        Thread.sleep(200);
+        assertEquals(new BookingStatsDto(1, 0, 1, 0, 0, 0), bookingStatsCounter.getOwnerStats(owner.getId()),
+                "Бронь не в завершившихся");
+    }
+
+    //Загрузка агрегатов завершившихся броней, активных броней и завершившихся без решения
+    @Test
+    void loadFromRepository() {
+        LocalDateTime now = LocalDateTime.now();
+
+        when(bookingRepository.countEndedBookingsByParties(any())).thenReturn(List.of(
+                countView(Status.APPROVED, 3), countView(Status.WAITING, 1)));
+        when(bookingRepository.findTimelineEndingFrom(any())).thenReturn(List.of(
+                timelineView(5L, now.minusDays(1), now.plusDays(1))));
+        when(bookingRepository.findTimelineByStatusEndedBefore(eq(Status.WAITING), any())).thenReturn(List.of(
+                timelineView(6L, now.minusDays(3), now.minusDays(2))));
+
+        bookingStatsCounter.load();
+
+        assertEquals(new BookingStatsDto(5, 1, 4, 0, 2, 0), bookingStatsCounter.getBookerStats(booker.getId()),
+                "Неверные счетчики после загрузки");
+
+        bookingStatsCounter.statusChanged(5L, Status.APPROVED);
+        bookingStatsCounter.statusChanged(6L, Status.APPROVED);
+
+        assertEquals(0, bookingStatsCounter.getOwnerStats(owner.getId()).getWaiting(),
+                "Решение по загруженной брони не учтено");
+    }
+
+    private BookingCountView countView(Status status, long total) {
+        return new BookingCountView() {
+            @Override
+            public Long getBookerId() {
+                return booker.getId();
+            }
+
+            @Override
+            public Long getOwnerId() {
+                return owner.getId();
+            }
+
+            @Override
+            public Status getStatus() {
+                return status;
+            }
+
+            @Override
+            public Long getTotal() {
+                return total;
+            }
+        };
+    }
+
+    private BookingTimelineView timelineView(Long id, LocalDateTime start, LocalDateTime end) {
+        return new BookingTimelineView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getStart() {
+                return start;
+            }
+
+            @Override
+            public LocalDateTime getEnd() {
+                return end;
+            }
+
+            @Override
+            public Long getBookerId() {
+                return booker.getId();
+            }
+
+            @Override
+            public Long getOwnerId() {
+                return owner.getId();
+            }
+
+            @Override
+            public Status getStatus() {
+                return Status.WAITING;
+            }
+        };
+    }
+}
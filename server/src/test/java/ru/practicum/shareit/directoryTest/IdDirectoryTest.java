@@ -0,0 +1,109 @@
+package ru.practicum.shareit.directoryTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.directory.IdDirectory;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.dto.ItemOwnerView;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IdDirectoryTest {
+    private final User owner = new User(1L, "owner", "owner@yandex.ru");
+    private UserRepository userRepository;
+    private ItemRepository itemRepository;
+    private IdDirectory idDirectory;
+
+    @BeforeEach
+    void beforeEach() {
+        userRepository = mock(UserRepository.class);
+        itemRepository = mock(ItemRepository.class);
+        idDirectory = new IdDirectory(userRepository, itemRepository);
+    }
+
+    private static NotFoundException notFound() {
+        return new NotFoundException("Не найдено");
+    }
+
+    //Загруженные при старте идентификаторы проверяются без обращения к базе
+    @Test
+    void loadedIdsCheckedWithoutDatabase() {
+        when(userRepository.findAllIds()).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findAllItemOwners()).thenReturn(List.of(itemOwner(10L, 1L)));
+
+        idDirectory.load();
+
+        assertDoesNotThrow(() -> idDirectory.requireUser(2L, IdDirectoryTest::notFound));
+        assertEquals(1L, idDirectory.requireItemOwner(10L, IdDirectoryTest::notFound), "Неверный владелец");
+        assertEquals(2, idDirectory.users(), "Неверное число пользователей");
+        verify(userRepository, never()).findById(anyLong());
+        verify(itemRepository, never()).findById(anyLong());
+    }
+
+    //При промахе идентификатор ищется в базе и запоминается
+    @Test
+    void missFallsBackToDatabaseOnce() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(owner));
+        when(itemRepository.findById(10L)).thenReturn(Optional.of(new Item(10L, "item", "description", true,
+                owner, null)));
+
+        idDirectory.requireUser(1L, IdDirectoryTest::notFound);
+        idDirectory.requireUser(1L, IdDirectoryTest::notFound);
+        idDirectory.requireItemOwner(10L, IdDirectoryTest::notFound);
+
+        assertEquals(1L, idDirectory.requireItemOwner(10L, IdDirectoryTest::notFound), "Неверный владелец");
+        verify(userRepository, times(1)).findById(1L);
+        verify(itemRepository, times(1)).findById(10L);
+    }
+
+    //Неизвестный идентификатор: исключение вызывающего, в справочник ничего не попадает
+    @Test
+    void unknownIdThrowsCallerException() {
+        Throwable throwable = assertThrows(NotFoundException.class, () ->
+                idDirectory.requireUser(3L, () -> new NotFoundException("Неверный идентификатор пользователя")));
+
+        assertEquals("Неверный идентификатор пользователя", throwable.getMessage(), "Текст ошибки разный");
+        assertThrows(NotFoundException.class, () -> idDirectory.requireItemOwner(3L, IdDirectoryTest::notFound));
+        assertEquals(0, idDirectory.users(), "Запомнен несуществующий пользователь");
+        assertEquals(0, idDirectory.items(), "Запомнена несуществующая вещь");
+    }
+
+    //Удаленный пользователь снова проверяется по базе
+    @Test
+    void removedUserCheckedInDatabase() {
+        idDirectory.addUser(1L);
+        idDirectory.removeUser(1L);
+
+        assertThrows(NotFoundException.class, () -> idDirectory.requireUser(1L, IdDirectoryTest::notFound));
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    private static ItemOwnerView itemOwner(long itemId, long ownerId) {
+        return new ItemOwnerView() {
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public Long getOwnerId() {
+                return ownerId;
+            }
+        };
+    }
+}
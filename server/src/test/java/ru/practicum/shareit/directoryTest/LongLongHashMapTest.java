@@ -0,0 +1,65 @@
+package ru.practicum.shareit.directoryTest;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.directory.LongLongHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongLongHashMapTest {
+
+    //Запись, замена и удаление значения
+    @Test
+    void putReplaceRemove() {
+        LongLongHashMap map = new LongLongHashMap(4);
+
+        map.put(1L, 10L);
+        map.put(1L, 11L);
+
+        assertEquals(11L, map.get(1L), "Значение не заменено");
+        assertEquals(1, map.size(), "Неверный размер");
+        assertTrue(map.remove(1L), "Ключ не удален");
+        assertFalse(map.remove(1L), "Ключ удален повторно");
+        assertEquals(LongLongHashMap.NO_VALUE, map.get(1L), "Удаленный ключ найден");
+        assertEquals(0, map.size(), "Неверный размер после удаления");
+    }
+
+    //Ключ 0 обозначает пустую ячейку и не сохраняется
+    @Test
+    void zeroKeyRejected() {
+        LongLongHashMap map = new LongLongHashMap(4);
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, 1L));
+        assertEquals(LongLongHashMap.NO_VALUE, map.get(0L), "Найден ключ 0");
+    }
+
+    //Случайные вставки и удаления с ростом таблицы совпадают с HashMap
+    @Test
+    void matchesHashMapAfterRandomOperations() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = 1 + random.nextInt(2_000);
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key), "Неверный результат удаления");
+            } else {
+                expected.put(key, (long) i);
+                map.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size(), "Неверный размер");
+        for (long key = 1; key <= 2_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongLongHashMap.NO_VALUE), map.get(key),
+                    "Неверное значение ключа " + key);
+        }
+    }
+}
@@ -9,10 +9,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.cache.JsonResponseCache;
 import ru.practicum.shareit.request.controller.ItemRequestController;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItems;
@@ -30,6 +33,8 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -91,15 +96,33 @@ public class ItemRequestControllerTest {
 
         ItemRequestDtoWithItems itemRequestDtoWithItems = itemRequestMapper.toItemRequestDtoWithItems(itemRequest);
 
-        when(itemRequestService.getItemRequest(userId, itemRequestId)).thenReturn(itemRequestDtoWithItems);
+        JsonResponseCache.Entry<ItemRequestDtoWithItems> response = new JsonResponseCache.Entry<>(itemRequestId,
+                itemRequestDtoWithItems, objectMapper.writeValueAsBytes(itemRequestDtoWithItems), null);
+
+        when(itemRequestService.getItemRequestResponse(userId, itemRequestId)).thenReturn(response);
 
         mockMvc.perform(get("/requests/1")
                         .header("X-Sharer-User-Id", itemRequest.getRequestor().getId()))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, response.getEtag()))
                 .andExpect(content().json("{\"id\": 1," +
                         " \"description\": \"itemRequestDescription\"}"));
 
-        verify(itemRequestService, times(1)).getItemRequest(userId, itemRequestId);
+        verify(itemRequestService, times(1)).getItemRequestResponse(userId, itemRequestId);
+    }
+
+    //Подписка на события запросов открывает асинхронный поток
+    @Test
+    void subscribe() throws Exception {
+        when(itemRequestService.subscribe(1L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/requests/events")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+
+        verify(itemRequestService, times(1)).subscribe(1L);
     }
 
     //Получение всех вещей
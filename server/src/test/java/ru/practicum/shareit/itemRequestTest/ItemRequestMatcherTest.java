@@ -0,0 +1,85 @@
+package ru.practicum.shareit.itemRequestTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.match.ItemRequestMatch;
+import ru.practicum.shareit.request.match.ItemRequestMatcher;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ItemRequestMatcherTest {
+    private final User requestor = new User(1L, "requestor", "requestor@yandex.ru");
+    private final User owner = new User(2L, "owner", "owner@yandex.ru");
+    private ItemRequestRepository itemRequestRepository;
+    private ItemRepository itemRepository;
+    private ItemRequestMatcher itemRequestMatcher;
+
+    @BeforeEach
+    void beforeEach() {
+        itemRequestRepository = mock(ItemRequestRepository.class);
+        itemRepository = mock(ItemRepository.class);
+        itemRequestMatcher = new ItemRequestMatcher(itemRequestRepository, itemRepository);
+    }
+
+    private ItemRequest itemRequest(long id, String description, User user) {
+        return new ItemRequest(id, description, user, LocalDateTime.now());
+    }
+
+    private Item item(long id, String name, String description) {
+        return new Item(id, name, description, true, owner, null);
+    }
+
+    private List<Long> suggest(Item item) {
+        return itemRequestMatcher.suggest(item).stream()
+                .map(ItemRequestMatch::getRequestId)
+                .collect(Collectors.toList());
+    }
+
+    //Подходит запрос, половина слов которого есть в вещи; короткие слова не учитываются
+    @Test
+    void suggestByHalfOfRequestTokens() {
+        itemRequestMatcher.open(itemRequest(1L, "Нужна дрель", requestor));
+        itemRequestMatcher.open(itemRequest(2L, "Нужна садовая тачка на дачу", requestor));
+        itemRequestMatcher.open(itemRequest(3L, "Ищу дрель и перфоратор для ремонта", requestor));
+
+        assertEquals(List.of(1L), suggest(item(1L, "Дрель", "Аккумуляторная дрель")),
+                "Неверные подходящие запросы");
+    }
+
+    //Владельцу вещи его собственные запросы не предлагаются
+    @Test
+    void skipOwnerRequests() {
+        itemRequestMatcher.open(itemRequest(1L, "Нужна дрель", owner));
+
+        assertTrue(suggest(item(1L, "Дрель", "Дрель")).isEmpty(), "Предложен собственный запрос");
+    }
+
+    //Запрос с ответом больше не сопоставляется, при старте такие запросы пропускаются
+    @Test
+    void closeAnsweredRequests() {
+        when(itemRequestRepository.findAll()).thenReturn(List.of(itemRequest(1L, "Нужна дрель", requestor),
+                itemRequest(2L, "Ищу дрель", requestor)));
+        when(itemRepository.findAnsweredRequestIds()).thenReturn(List.of(1L));
+
+        itemRequestMatcher.load();
+
+        assertEquals(1, itemRequestMatcher.size(), "Запрос с ответом попал в индекс");
+        assertEquals(List.of(2L), suggest(item(1L, "Дрель", "Дрель")), "Неверные подходящие запросы");
+
+        itemRequestMatcher.close(2L);
+
+        assertTrue(suggest(item(2L, "Дрель", "Дрель")).isEmpty(), "Закрытый запрос сопоставлен");
+    }
+}
@@ -7,10 +7,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.ItemRequestSuggestion;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.ItemRequestSuggestionRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
@@ -26,6 +32,8 @@ import static org.junit.jupiter.api.Assertions.*;
 public class ItemRequestRepositoryTest {
     private final UserRepository userRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private final ItemRequestSuggestionRepository itemRequestSuggestionRepository;
 
     private ItemRequest itemRequest;
 
@@ -50,6 +58,43 @@ public class ItemRequestRepositoryTest {
                 "Время не совпадает");
     }
 
+    //Предложения запроса читаются новыми первыми и страницей ограниченного размера
+    @Test
+    void findSuggestedItemIds() {
+        User owner = userRepository.save(new User(2L, "owner", "owner@yandex.ru"));
+        LocalDateTime now = LocalDateTime.now();
+        Long latest = null;
+
+        for (long i = 1; i <= 3; i++) {
+            latest = itemRepository.save(new Item(i, "Дрель " + i, "Дрель", true, owner, null)).getId();
+            itemRequestSuggestionRepository.save(new ItemRequestSuggestion(null, itemRequest.getId(), latest,
+                    now.plusMinutes(i)));
+        }
+
+        final List<Long> itemIds = itemRequestSuggestionRepository.findItemIdsByRequestId(itemRequest.getId(),
+                PageRequest.of(0, 2));
+
+        assertEquals(2, itemIds.size(), "Страница не ограничена");
+        assertEquals(latest, itemIds.get(0),
+                "Новое предложение не первое");
+    }
+
+    //Чужие запросы отбираются в базе: страница не укорачивается собственными запросами пользователя
+    @Test
+    void getAllByRequestorIdNot() {
+        User other = userRepository.save(new User(2L, "test2", "test2@yandex.ru"));
+        ItemRequest otherRequest = itemRequestRepository.save(new ItemRequest(2L, "itemRequest2", other,
+                LocalDateTime.now()));
+        itemRequestRepository.save(new ItemRequest(3L, "itemRequest3", itemRequest.getRequestor(),
+                LocalDateTime.now()));
+
+        final List<ItemRequest> itemRequests = itemRequestRepository.findAllByRequestorIdNot(
+                itemRequest.getRequestor().getId(), PageRequest.of(0, 1, Sort.by("created")));
+
+        assertEquals(1, itemRequests.size(), "Страница не заполнена");
+        assertEquals(otherRequest.getId(), itemRequests.get(0).getId(), "Получен собственный запрос");
+    }
+
     //Получение всех запросов
     @Test
     void getAllRequestsTest() {
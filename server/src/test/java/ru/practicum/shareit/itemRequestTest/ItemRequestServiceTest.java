@@ -1,27 +1,39 @@
 package ru.practicum.shareit.itemRequestTest;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItems;
 import ru.practicum.shareit.request.dto.ItemRequestMapper;
+import ru.practicum.shareit.request.enums.ItemRequestEventType;
+import ru.practicum.shareit.request.event.ItemRequestEvents;
+import ru.practicum.shareit.request.match.ItemRequestMatcher;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.ItemRequestSuggestion;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.ItemRequestSuggestionRepository;
 import ru.practicum.shareit.request.service.ItemRequestService;
 import ru.practicum.shareit.request.service.ItemRequestServiceImpl;
+import ru.practicum.shareit.request.service.ItemRequestViewCache;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
@@ -39,6 +51,9 @@ public class ItemRequestServiceTest {
     private ItemRequestRepository itemRequestRepository;
     private ItemRequestMapper itemRequestMapper;
     private UserRepository userRepository;
+    private ItemRepository itemRepository;
+    private ItemRequestEvents itemRequestEvents;
+    private ItemRequestSuggestionRepository itemRequestSuggestionRepository;
     private ItemRequest itemRequest;
     private User user;
 
@@ -46,10 +61,15 @@ public class ItemRequestServiceTest {
     public void beforeEach() {
         itemRequestRepository = mock(ItemRequestRepository.class);
         userRepository = mock(UserRepository.class);
-        ItemRepository itemRepository = mock(ItemRepository.class);
+        itemRepository = mock(ItemRepository.class);
+        itemRequestEvents = mock(ItemRequestEvents.class);
+        itemRequestSuggestionRepository = mock(ItemRequestSuggestionRepository.class);
         itemRequestMapper = new ItemRequestMapper();
         itemRequestService = new ItemRequestServiceImpl(itemRequestRepository, itemRepository, itemRequestMapper,
-                userRepository);
+                userRepository, new ItemRequestViewCache(new SimpleMeterRegistry(),
+                Jackson2ObjectMapperBuilder.json().build(), DataSize.ofMegabytes(1), Duration.ofMinutes(1)),
+                new ItemRequestMatcher(itemRequestRepository, itemRepository), itemRequestEvents,
+                new IdDirectory(userRepository, itemRepository), itemRequestSuggestionRepository);
         itemRequest = createItemRequestExample();
     }
 
@@ -133,8 +153,8 @@ public class ItemRequestServiceTest {
 
         when(itemRequestRepository.save(any(ItemRequest.class))).thenReturn(itemRequest);
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(itemRequestRepository.findAll(PageRequest.of(0, 20, Sort.by("created"))))
-                .thenReturn(Page.empty());
+        when(itemRequestRepository.findAllByRequestorIdNot(userId, PageRequest.of(0, 20, Sort.by("created"))))
+                .thenReturn(Collections.emptyList());
 
         itemRequestService.create(itemRequestMapper.toItemRequestDto(itemRequest), userId);
 
@@ -144,7 +164,31 @@ public class ItemRequestServiceTest {
         assertTrue(itemRequestDtoWithItems.isEmpty(), "Есть запрос");
 
         verify(itemRequestRepository, times(1))
-                .findAll(PageRequest.of(0, 20, Sort.by("created")));
+                .findAllByRequestorIdNot(userId, PageRequest.of(0, 20, Sort.by("created")));
+        verify(itemRepository, never()).findAllByItemRequestIdIn(any());
+    }
+
+    //Вещи для всех запросов страницы загружаются одним запросом
+    @Test
+    public void getAllItemRequestWithPageableLoadsItemsOnce() {
+        User requestor = new User(2L, "test2", "test2@yandex.ru");
+        ItemRequest other = new ItemRequest(2L, "otherDescription", requestor, LocalDateTime.now());
+        ItemRequest another = new ItemRequest(3L, "anotherDescription", requestor, LocalDateTime.now());
+        Item item = new Item(1L, "testItem", "testDescription", true, user, other);
+        Pageable pageable = PageRequest.of(0, 20, Sort.by("created"));
+
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(itemRequestRepository.findAllByRequestorIdNot(user.getId(), pageable)).thenReturn(List.of(other, another));
+        when(itemRepository.findAllByItemRequestIdIn(List.of(2L, 3L))).thenReturn(List.of(item));
+
+        List<ItemRequestDtoWithItems> itemRequests = itemRequestService.getAllWithPageable(user.getId(), 0, 20);
+
+        assertEquals(2, itemRequests.size(), "Неверное число запросов");
+        assertEquals(1L, itemRequests.get(0).getItems().get(0).getId(), "Вещь не отнесена к запросу");
+        assertTrue(itemRequests.get(1).getItems().isEmpty(), "Чужая вещь отнесена к запросу");
+
+        verify(itemRepository, times(1)).findAllByItemRequestIdIn(anyCollection());
+        verify(itemRepository, never()).findAllByItemRequestId(anyLong());
     }
 
     //Создание запроса с несуществующем пользователем
@@ -202,4 +246,37 @@ public class ItemRequestServiceTest {
         assertEquals("Неверный идентификатор пользователя", throwable.getMessage(),
                 "Неверный идентификатор пользователя");
     }
-}
\ No newline at end of file
+
+    //Вещь, подходящая под описание запроса, приходит автору как предложение, а вещь по запросу - как ответ
+    @Test
+    public void notifyItemCreated() {
+        User owner = new User(2L, "owner", "owner@yandex.ru");
+        Item suggested = new Item(1L, "Дрель", "Дрель ударная", true, owner, null);
+        Item answer = new Item(2L, "Дрель", "Дрель ударная", true, owner, itemRequest);
+
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(itemRequestRepository.save(any(ItemRequest.class))).thenReturn(
+                new ItemRequest(1L, "Нужна дрель", user, LocalDateTime.now()));
+        when(itemRequestRepository.findById(itemRequest.getId())).thenReturn(Optional.of(itemRequest));
+        when(itemRepository.findAllById(List.of(suggested.getId()))).thenReturn(List.of(suggested));
+        when(itemRequestSuggestionRepository.findItemIdsByRequestId(itemRequest.getId(),
+                PageRequest.of(0, ItemRequestServiceImpl.MAX_SUGGESTIONS))).thenReturn(List.of(suggested.getId()));
+
+        itemRequestService.create(itemRequestMapper.toItemRequestDto(itemRequest), user.getId());
+        itemRequestService.notifyItemCreated(suggested);
+
+        verify(itemRequestSuggestionRepository).saveAll(argThat((List<ItemRequestSuggestion> suggestions) ->
+                suggestions.size() == 1 && suggestions.get(0).getRequestId().equals(itemRequest.getId())
+                        && suggestions.get(0).getItemId().equals(suggested.getId())));
+        assertEquals(1L, itemRequestService.getSuggestions(user.getId(), itemRequest.getId()).get(0).getId(),
+                "Предложенная вещь не получена");
+
+        itemRequestService.notifyItemCreated(answer);
+
+        verify(itemRequestEvents).publish(eq(user.getId()), argThat(event ->
+                event.getType() == ItemRequestEventType.SUGGESTION && event.getItem().getId().equals(1L)));
+        verify(itemRequestEvents).publish(eq(user.getId()), argThat(event ->
+                event.getType() == ItemRequestEventType.ANSWER && event.getItem().getId().equals(2L)));
+        verify(itemRequestSuggestionRepository, times(1)).saveAll(any());
+    }
+}
@@ -6,6 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Profile;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItems;
 import ru.practicum.shareit.request.dto.ItemRequestMapper;
@@ -17,8 +20,11 @@ import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 @SpringBootTest
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -27,6 +33,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 public class ItemRequestServiceWithoutMockTest {
     private final ItemRequestService itemRequestService;
     private final UserService userService;
+    private final ItemService itemService;
     private final ItemRequestMapper itemRequestMapper;
     private final User user = new User(1L, "test", "test@yandex.ru");
     private final ItemRequest itemRequest = new ItemRequest(1L, "itemRequestDescription", user,
@@ -59,4 +66,50 @@ public class ItemRequestServiceWithoutMockTest {
         assertEquals(itemRequest.getDescription(), itemRequestDtoWithItems.getDescription(),
                 "Описания не совпадают");
     }
-}
\ No newline at end of file
+
+    //Вещь, добавленная по запросу, меняет ответ и его ETag
+    @Test
+    public void getItemRequestAfterItemCreated() {
+        UserDto userDto = userService.create(UserMapper.toUserDto(user));
+
+        ItemRequestDto itemRequestDto = itemRequestService.create(itemRequestMapper.toItemRequestDto(itemRequest),
+                userDto.getId());
+
+        JsonResponseCache.Entry<ItemRequestDtoWithItems> before = itemRequestService.getItemRequestResponse(
+                userDto.getId(), itemRequestDto.getId());
+
+        itemService.create(userDto.getId(), new ItemDto(null, "testItem", "testDescription", true,
+                itemRequestDto.getId()));
+
+        JsonResponseCache.Entry<ItemRequestDtoWithItems> after = itemRequestService.getItemRequestResponse(
+                userDto.getId(), itemRequestDto.getId());
+
+        assertEquals(1, after.getValue().getItems().size(), "Вещь по запросу не найдена");
+        assertNotEquals(before.getEtag(), after.getEtag(), "ETag не изменился");
+    }
+
+    //Вещь другого пользователя, подходящая под описание, попадает в предложения запроса
+    //и остается в них после ответа на запрос
+    @Test
+    public void getSuggestionsAfterItemCreated() {
+        UserDto requestor = userService.create(UserMapper.toUserDto(user));
+        UserDto owner = userService.create(new UserDto(null, "owner", "owner@yandex.ru"));
+
+        ItemRequestDto itemRequestDto = itemRequestService.create(new ItemRequestDto(null, "Нужна дрель", null),
+                requestor.getId());
+        ItemDto itemDto = itemService.create(owner.getId(), new ItemDto(null, "Дрель", "Дрель ударная", true,
+                null));
+
+        List<ItemDto> suggestions = itemRequestService.getSuggestions(requestor.getId(), itemRequestDto.getId());
+
+        assertEquals(1, suggestions.size(), "Вещь не предложена");
+        assertEquals(itemDto.getId(), suggestions.get(0).getId(), "Предложена другая вещь");
+
+        itemService.create(owner.getId(), new ItemDto(null, "Дрель", "Дрель для ответа", true,
+                itemRequestDto.getId()));
+
+        assertEquals(List.of(itemDto.getId()), itemRequestService.getSuggestions(requestor.getId(),
+                itemRequestDto.getId()).stream().map(ItemDto::getId).collect(Collectors.toList()),
+                "Предложения запроса потеряны после ответа");
+    }
+}
@@ -48,4 +48,14 @@ public class CommentRepositoryTest {
         assertEquals(comment.getId(), comments.get(0).getId(), "Идентификаторы не совпадают");
         assertEquals(comment.getText(), comments.get(0).getText(), "Тексты не совпадают");
     }
-}
\ No newline at end of file
+
+    //Получение комментариев под несколькими вещами
+    @Test
+    public void getAllCommentsByItemIdsTest() {
+        final List<Comment> comments = commentRepository.findAllByItemIdIn(List.of(item.getId(), 100L));
+
+        assertEquals(1, comments.size(), "Комментарий отсутствует");
+        assertEquals(comment.getId(), comments.get(0).getId(), "Идентификаторы не совпадают");
+        assertEquals(comment.getAuthor().getName(), comments.get(0).getAuthor().getName(), "Авторы не совпадают");
+    }
+}
@@ -0,0 +1,195 @@
+package ru.practicum.shareit.itemTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.InMemoryItemSearchEngine;
+import ru.practicum.shareit.item.search.SearchIndexStats;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryItemSearchEngineTest {
+    private InMemoryItemSearchEngine searchEngine;
+    private ItemRepository itemRepository;
+    private MeterRegistry meterRegistry;
+    private User owner;
+
+    @BeforeEach
+    public void beforeEach() {
+        owner = new User(1L, "testUser", "test@yandex.ru");
+        itemRepository = mock(ItemRepository.class);
+        when(itemRepository.findAll()).thenReturn(List.of(
+                new Item(1L, "Отвертка", "Аккумуляторная дрель-отвертка", true, owner, null),
+                new Item(2L, "Дрель", "Простая дрель", true, owner, null),
+                new Item(3L, "Дрель ударная", "Сломана", false, owner, null),
+                new Item(4L, "Молоток", "Обычный молоток", true, owner, null)));
+        meterRegistry = new SimpleMeterRegistry();
+        searchEngine = new InMemoryItemSearchEngine(itemRepository, meterRegistry, DataSize.ofMegabytes(1),
+                Duration.ofHours(1));
+        searchEngine.rebuild();
+    }
+
+    //Совпадение в названии выше совпадения в описании, недоступные вещи не возвращаются
+    @Test
+    void searchRanksByRelevance() {
+        final List<Long> ids = ids(searchEngine.search("ДРЕЛЬ", 0, 20));
+
+        assertEquals(List.of(2L, 1L), ids, "Неверный порядок результатов");
+    }
+
+    //Запрос ищется как подстрока названия или описания, в том числе короче триграммы
+    @Test
+    void searchBySubstring() {
+        assertEquals(List.of(2L, 1L), ids(searchEngine.search("рел", 0, 20)), "Вещь не найдена");
+        assertEquals(List.of(1L), ids(searchEngine.search("ль-от", 0, 20)), "Вещь не найдена");
+        assertEquals(List.of(4L), ids(searchEngine.search("мо", 0, 20)), "Вещь не найдена");
+        assertTrue(searchEngine.search("дрель молоток", 0, 20).isEmpty(), "Найдена лишняя вещь");
+    }
+
+    //Недоступные вещи отфильтровываются до разбиения на страницы
+    @Test
+    void searchPagesOnlyAvailableItems() {
+        assertEquals(List.of(2L), ids(searchEngine.search("дрель", 0, 1)), "Неверная первая страница");
+        assertEquals(List.of(1L), ids(searchEngine.search("дрель", 1, 1)), "Неверная вторая страница");
+    }
+
+    //Индекс обновляется при изменении вещи
+    @Test
+    void indexUpdatesItem() {
+        searchEngine.index(new Item(4L, "Кувалда", "Тяжелая", true, owner, null));
+
+        assertTrue(searchEngine.search("молоток", 0, 20).isEmpty(), "Найдено старое название");
+        assertEquals(List.of(4L), ids(searchEngine.search("кувалда", 0, 20)), "Вещь не найдена");
+
+        searchEngine.index(new Item(3L, "Дрель ударная", "Починена", true, owner, null));
+
+        assertEquals(List.of(2L, 3L, 1L), ids(searchEngine.search("дрель", 0, 20)), "Вещь не найдена");
+
+        searchEngine.index(new Item(2L, "Дрель", "Простая дрель", false, owner, null));
+
+        assertEquals(List.of(3L, 1L), ids(searchEngine.search("дрель", 0, 20)), "Найдена недоступная вещь");
+    }
+
+    //Размер индекса сообщается и ограничен шириной полей вещи
+    @Test
+    void statsAreBounded() {
+        final SearchIndexStats stats = searchEngine.getStats();
+        final int maxGramsPerItem = 2 * (InMemoryItemSearchEngine.MAX_FIELD_LENGTH - 2);
+
+        assertEquals(4, stats.getItems(), "Неверное количество вещей");
+        assertTrue(stats.getBytesPerItem() > 0, "Размер индекса не посчитан");
+        assertTrue(stats.getPostingEntries() <= (long) maxGramsPerItem * stats.getItems(),
+                "Превышено количество триграмм на вещь");
+
+        searchEngine.index(new Item(5L, "ж".repeat(1000), "з".repeat(1000), true, owner, null));
+
+        assertTrue(searchEngine.getStats().getPostingEntries() <= stats.getPostingEntries() + maxGramsPerItem,
+                "Длинный текст не ограничен");
+    }
+
+    //Размер индекса публикуется метриками и совпадает со статистикой
+    @Test
+    void statsArePublishedAsGauges() {
+        final SearchIndexStats stats = searchEngine.getStats();
+
+        assertEquals(4, meterRegistry.get("search.index.items").gauge().value(), "Неверное количество вещей");
+        assertEquals(stats.getTrigrams(), meterRegistry.get("search.index.trigrams").gauge().value(),
+                "Неверное количество триграмм");
+        assertEquals(stats.getPostingEntries(), meterRegistry.get("search.index.postings").gauge().value(),
+                "Неверное количество вхождений");
+        assertEquals(stats.getEstimatedBytes(), meterRegistry.get("search.index.bytes").gauge().value(),
+                "Неверный размер индекса");
+        assertEquals(0, meterRegistry.get("search.index.overflow").gauge().value(), "Индекс не помещается");
+    }
+
+    //Учет памяти ведется при изменениях и возвращается к исходному после обратного изменения
+    @Test
+    void statsFollowUpdates() {
+        final SearchIndexStats stats = searchEngine.getStats();
+
+        searchEngine.index(new Item(4L, "Кувалда", "Тяжелая", true, owner, null));
+        searchEngine.index(new Item(4L, "Молоток", "Обычный молоток", true, owner, null));
+
+        assertEquals(stats.getTrigrams(), searchEngine.getStats().getTrigrams(), "Неверное количество триграмм");
+        assertEquals(stats.getPostingEntries(), searchEngine.getStats().getPostingEntries(),
+                "Неверное количество вхождений");
+        assertEquals(stats.getEstimatedBytes(), searchEngine.getStats().getEstimatedBytes(),
+                "Неверный размер индекса");
+    }
+
+    //Индекс, не поместившийся в бюджет, освобождается, а поиск идет подстрокой в базе
+    @Test
+    void overflowFallsBackToDatabase() {
+        final Item item = new Item(6L, "Дрель", "Простая дрель", true, owner, null);
+        when(itemRepository.searchBySubstring("%дрел%", PageRequest.of(0, 20))).thenReturn(List.of(item));
+
+        searchEngine = new InMemoryItemSearchEngine(itemRepository, meterRegistry, DataSize.ofBytes(1),
+                Duration.ofHours(1));
+        searchEngine.rebuild();
+
+        assertTrue(searchEngine.isOverflow(), "Бюджет не учтен");
+        assertEquals(0, searchEngine.getStats().getItems(), "Индекс не освобожден");
+        assertEquals(List.of(6L), ids(searchEngine.search("ДРЕЛ", 0, 20)), "Вещь не найдена");
+
+        searchEngine.index(item);
+
+        assertEquals(0, searchEngine.getStats().getItems(), "Индекс растет сверх бюджета");
+        assertTrue(searchEngine.search("50%_", 0, 20).isEmpty(), "Найдена лишняя вещь");
+        verify(itemRepository).searchBySubstring("%50!%!_%", PageRequest.of(0, 20));
+    }
+
+    //Перестройка по расписанию возвращает индекс в память, когда вещи снова помещаются в бюджет
+    @Test
+    void rebuildAfterOverflowReturnsIndexToMemory() {
+        final Item large = new Item(5L, "Дрель", "д".repeat(100_000), true, owner, null);
+        final Item small = new Item(5L, "Дрель", "Простая дрель", true, owner, null);
+        when(itemRepository.findAll()).thenReturn(List.of(large));
+
+        searchEngine = new InMemoryItemSearchEngine(itemRepository, meterRegistry, DataSize.ofKilobytes(64),
+                Duration.ofHours(1));
+        searchEngine.rebuild();
+
+        assertTrue(searchEngine.isOverflow(), "Бюджет не учтен");
+
+        searchEngine.index(small);
+        searchEngine.rebuildIfOverflow();
+
+        assertTrue(searchEngine.isOverflow(), "Индекс построен сверх бюджета");
+
+        when(itemRepository.findAll()).thenReturn(List.of(small));
+        searchEngine.rebuildIfOverflow();
+
+        assertFalse(searchEngine.isOverflow(), "Индекс не вернулся в память");
+        assertEquals(List.of(5L), ids(searchEngine.search("дрель", 0, 20)), "Вещь не найдена");
+        searchEngine.close();
+    }
+
+    //Перестройка в пределах бюджета возвращает поиск в индекс
+    @Test
+    void rebuildWithinBudgetLeavesIndexInMemory() {
+        searchEngine.rebuild();
+
+        assertFalse(searchEngine.isOverflow(), "Индекс не помещается");
+        assertEquals(List.of(4L), ids(searchEngine.search("молоток", 0, 20)), "Вещь не найдена");
+    }
+
+    private static List<Long> ids(List<ItemDto> items) {
+        return items.stream().map(ItemDto::getId).collect(Collectors.toList());
+    }
+}
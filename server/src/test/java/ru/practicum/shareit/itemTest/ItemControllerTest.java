@@ -9,10 +9,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.shareit.cache.JsonResponseCache;
 import ru.practicum.shareit.item.controller.ItemController;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -31,6 +33,7 @@ import java.util.List;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -83,6 +86,7 @@ public class ItemControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(content().json("{\"id\": 1,\"name\": \"testItem\"," +
                         " \"description\": \"itemDescription\", \"available\": true, \"requestId\": 1}"));
 
@@ -123,15 +127,38 @@ public class ItemControllerTest {
 
         ItemDtoBooking itemDtoBooking = ItemMapper.toItemDtoWithBooking(item);
 
-        when(itemService.getItem(itemId, userId)).thenReturn(itemDtoBooking);
+        JsonResponseCache.Entry<ItemDtoBooking> response = new JsonResponseCache.Entry<>(userId, itemDtoBooking,
+                objectMapper.writeValueAsBytes(itemDtoBooking), null);
+
+        when(itemService.getItemResponse(itemId, userId)).thenReturn(response);
 
         mockMvc.perform(get("/items/1")
                         .header("X-Sharer-User-Id", item.getOwner().getId()))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, response.getEtag()))
                 .andExpect(content().json("{\"id\": 1,\"name\": \"testItem\"," +
                         " \"description\": \"itemDescription\", \"available\": true," +
                         " \"lastBooking\": null, \"nextBooking\": null, \"comments\": []}"));
-        verify(itemService, times(1)).getItem(itemId, userId);
+        verify(itemService, times(1)).getItemResponse(itemId, userId);
+    }
+
+    //Совпавший ETag дает 304 без тела
+    @Test
+    public void getItemByIdNotModified() throws Exception {
+        Long userId = item.getOwner().getId();
+        ItemDtoBooking itemDtoBooking = ItemMapper.toItemDtoWithBooking(item);
+        JsonResponseCache.Entry<ItemDtoBooking> response = new JsonResponseCache.Entry<>(userId, itemDtoBooking,
+                objectMapper.writeValueAsBytes(itemDtoBooking), null);
+
+        when(itemService.getItemResponse(item.getId(), userId)).thenReturn(response);
+
+        mockMvc.perform(get("/items/1")
+                        .header("X-Sharer-User-Id", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, response.getEtag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, response.getEtag()))
+                .andExpect(content().string(""));
     }
 
     //Получение всех вещей пользователя
@@ -1,20 +1,26 @@
 package ru.practicum.shareit.itemTest;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.InMemoryItemSearchEngine;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -43,17 +49,39 @@ public class ItemRepositoryTest {
                 itemRequest));
     }
 
-    //Поиск вещи тексту
+    //Поиск вещи тексту по индексу, построенному из репозитория
     @Test
     public void searchItem() {
         final String text = item.getName().substring(0, 3);
-        final List<Item> items = itemRepository.search(text, Pageable.unpaged());
+        final InMemoryItemSearchEngine searchEngine = new InMemoryItemSearchEngine(itemRepository,
+                new SimpleMeterRegistry(), DataSize.ofMegabytes(1), Duration.ofHours(1));
+        searchEngine.rebuild();
+        final List<ItemDto> items = searchEngine.search(text, 0, 20);
 
         assertEquals(items.size(), 1, "Вещь не найдена");
         assertEquals(items.get(0).getId(), item.getId(), "Идентификаторы не совпадают");
         assertEquals(items.get(0).getName(), item.getName(), "Имена не совпадают");
         assertEquals(items.get(0).getDescription(), item.getDescription(), "Описания не совпадают");
-        assertEquals(items.get(0).getItemRequest(), item.getItemRequest(), "Запросы не совпадают");
+        assertEquals(items.get(0).getRequestId(), item.getItemRequest().getId(), "Запросы не совпадают");
+    }
+
+    //Поиск подстроки в базе: совпадения в названии первыми, недоступные вещи и служебные символы LIKE учтены
+    @Test
+    public void searchBySubstring() {
+        final Item described = itemRepository.save(new Item(2L, "Дрель", "Как testItem, но лучше", true, user1,
+                null));
+        itemRepository.save(new Item(3L, "testItem сломан", "Недоступна", false, user1, null));
+        itemRepository.save(new Item(4L, "test_item", "Скидка 50%", true, user1, null));
+
+        final List<Item> items = itemRepository.searchBySubstring("%testitem%", PageRequest.of(0, 20));
+
+        assertEquals(List.of(item.getId(), described.getId()),
+                List.of(items.get(0).getId(), items.get(1).getId()), "Неверный порядок результатов");
+        assertEquals(2, items.size(), "Найдена лишняя вещь");
+        assertEquals(1, itemRepository.searchBySubstring("%50!%%", PageRequest.of(0, 20)).size(),
+                "Вещь не найдена");
+        assertTrue(itemRepository.searchBySubstring("%test!_%", PageRequest.of(0, 20)).stream()
+                .allMatch(found -> found.getName().equals("test_item")), "Подчеркивание не экранировано");
     }
 
     //Поиск по запросу
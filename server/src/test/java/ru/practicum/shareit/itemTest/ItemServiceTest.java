@@ -1,5 +1,6 @@
 package ru.practicum.shareit.itemTest;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,10 +8,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.booking.dto.BookingDtoForItem;
+import ru.practicum.shareit.booking.dto.BookingDtoForItemView;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -21,14 +28,19 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.InMemoryItemSearchEngine;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.item.service.ItemViewCache;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.request.service.ItemRequestViewCache;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -36,6 +48,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
@@ -51,6 +64,7 @@ import static org.mockito.Mockito.times;
     private UserRepository userRepository;
     private CommentRepository commentRepository;
     private BookingRepository bookingRepository;
+    private SimpleMeterRegistry meterRegistry;
     private Item item;
     private User user;
 
@@ -61,8 +75,16 @@ import static org.mockito.Mockito.times;
         userRepository = mock(UserRepository.class);
         commentRepository = mock(CommentRepository.class);
         bookingRepository = mock(BookingRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
         itemService = new ItemServiceImpl(itemRepository, userRepository, bookingRepository, commentRepository,
-                itemRequestRepository);
+                itemRequestRepository,
+                new InMemoryItemSearchEngine(itemRepository, meterRegistry, DataSize.ofMegabytes(1),
+                        Duration.ofHours(1)),
+                new ItemViewCache(meterRegistry, Jackson2ObjectMapperBuilder.json().build(),
+                        DataSize.ofMegabytes(1), Duration.ofMinutes(1)),
+                new ItemRequestViewCache(new SimpleMeterRegistry(), Jackson2ObjectMapperBuilder.json().build(),
+                        DataSize.ofMegabytes(1), Duration.ofMinutes(1)),
+                mock(ItemRequestService.class), new IdDirectory(userRepository, itemRepository));
         item = createValidItemExample();
     }
 
@@ -150,6 +172,68 @@ import static org.mockito.Mockito.times;
         verify(itemRepository, times(1)).findById(itemId);
     }
 
+    //Повторное получение вещи из кэша, отдельно для владельца и для остальных; изменение вещи сбрасывает кэш
+    @Test
+    void getItemByIdCached() {
+        Long itemId = item.getId();
+        Long ownerId = item.getOwner().getId();
+        Long otherId = ownerId + 1;
+
+        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
+
+        itemService.getItem(itemId, ownerId);
+        itemService.getItem(itemId, ownerId);
+        itemService.getItem(itemId, otherId);
+        itemService.getItem(itemId, otherId);
+
+        verify(itemRepository, times(2)).findById(itemId);
+        verify(bookingRepository, times(1)).findItemBookingsStartedBefore(anyLong(), any(), any(), any());
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "hit").counter().count(),
+                "Неверное число попаданий");
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "miss").counter().count(),
+                "Неверное число промахов");
+
+        itemService.update(ownerId, itemId, new ItemDto(null, "newName", null, null, null));
+        ItemDtoBooking updated = itemService.getItem(itemId, otherId);
+
+        assertEquals("newName", updated.getName(), "Получена устаревшая вещь");
+        verify(itemRepository, times(4)).findById(itemId);
+    }
+
+    //Изменение полученной вещи не затрагивает закэшированный ответ
+    @Test
+    void getItemReturnsCopyOfCachedValue() {
+        Long itemId = item.getId();
+        Long otherId = item.getOwner().getId() + 1;
+
+        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
+
+        itemService.getItem(itemId, otherId).setName("changedName");
+
+        assertEquals(item.getName(), itemService.getItem(itemId, otherId).getName(), "Изменен закэшированный ответ");
+        assertEquals(item.getName(), itemService.getItemResponse(itemId, otherId).getValue().getName(),
+                "Изменено значение записи кэша");
+        verify(itemRepository, times(1)).findById(itemId);
+    }
+
+    //Повторный запрос тела ответа отдает байты и ETag из кэша без сериализации
+    @Test
+    void getItemResponseCached() throws Exception {
+        Long itemId = item.getId();
+        Long otherId = item.getOwner().getId() + 1;
+
+        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
+
+        JsonResponseCache.Entry<ItemDtoBooking> response = itemService.getItemResponse(itemId, otherId);
+        byte[] json = response.getJson();
+        ItemDtoBooking itemDto = Jackson2ObjectMapperBuilder.json().build().readValue(json, ItemDtoBooking.class);
+
+        assertEquals(item.getName(), itemDto.getName(), "Неверное тело ответа");
+        assertSame(json, itemService.getItemResponse(itemId, otherId).getJson(), "Ответ сериализован повторно");
+        assertEquals(response.getEtag(), itemService.getItemResponse(itemId, otherId).getEtag(), "ETag изменился");
+        verify(itemRepository, times(1)).findById(itemId);
+    }
+
     //Получение всех вещей пользователя
     @Test
      void getAllItemsByUserId() {
@@ -174,22 +258,49 @@ import static org.mockito.Mockito.times;
         verify(itemRepository, times(1)).findByOwnerId(userId, PageRequest.of(0, 20));
     }
 
+    //Получение всех вещей пользователя с бронями и комментариями
+    @Test
+     void getAllItemsByUserWithBookingsAndComments() {
+        Long userId = item.getOwner().getId();
+        User author = item.getItemRequest().getRequestor();
+        Comment comment = createValidCommentExample(item, author);
+        BookingDtoForItemView lastBooking = mock(BookingDtoForItemView.class);
+
+        when(lastBooking.getId()).thenReturn(5L);
+        when(lastBooking.getItemId()).thenReturn(item.getId());
+        when(lastBooking.getBookerId()).thenReturn(author.getId());
+        when(lastBooking.getLast()).thenReturn(true);
+        when(itemRepository.findByOwnerId(userId, PageRequest.of(0, 20)))
+                .thenReturn(Collections.singletonList(item));
+        when(bookingRepository.findLastAndNextBookings(eq(List.of(item.getId())), any()))
+                .thenReturn(List.of(lastBooking));
+        when(commentRepository.findAllByItemIdIn(List.of(item.getId()))).thenReturn(List.of(comment));
+
+        final List<ItemDtoBooking> itemDtoBookings = itemService.getAllItemsByUser(userId, 0, 20);
+
+        assertEquals(1, itemDtoBookings.size(), "Вещь отсутствует");
+        assertEquals(new BookingDtoForItem(5L, author.getId()), itemDtoBookings.get(0).getLastBooking(),
+                "Последние брони не совпадают");
+        assertEquals(null, itemDtoBookings.get(0).getNextBooking(), "Следующая бронь найдена");
+        assertEquals(List.of(CommentMapper.toCommentDto(comment)), itemDtoBookings.get(0).getComments(),
+                "Комментарии не совпадают");
+
+        verify(bookingRepository, times(1)).findLastAndNextBookings(any(), any());
+        verify(commentRepository, times(1)).findAllByItemIdIn(any());
+    }
+
     //Поиск вещи
     @Test
      void search() {
         Long itemId = item.getId();
         Long userId = item.getOwner().getId();
 
-        final List<Item> items = new ArrayList<>();
-        items.add(item);
-
         String text = item.getDescription().substring(0, 3);
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(item.getOwner()));
         when(itemRequestRepository.findById(item.getItemRequest().getId()))
                 .thenReturn(Optional.of(item.getItemRequest()));
         when(itemRepository.save(any(Item.class))).thenReturn(item);
-        when(itemRepository.search(text, PageRequest.of(0, 20))).thenReturn(items);
 
         itemService.create(userId, ItemMapper.toItemDto(item));
 
@@ -199,8 +310,6 @@ import static org.mockito.Mockito.times;
         assertEquals(item.getName(), itemDtoList.get(0).getName(), "Имена не совпадают");
         assertEquals(item.getDescription(), itemDtoList.get(0).getDescription(), "Описания не совпадают");
         assertEquals(item.getAvailable(), itemDtoList.get(0).getAvailable(), "Статусы не совпадают");
-
-        verify(itemRepository, times(1)).search(text, PageRequest.of(0, 20));
     }
 
     //Поиск вещи (пустой)
@@ -6,6 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Profile;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoSimple;
+import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoBooking;
 import ru.practicum.shareit.item.mapper.ItemMapper;
@@ -16,7 +19,10 @@ import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.time.LocalDateTime;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @SpringBootTest
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -24,6 +30,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 @Profile("test")
 public class ItemServiceWithoutMockTest {
     private final ItemService itemService;
+    private final BookingService bookingService;
     private final UserService userService;
     private final User user = new User(1L, "testUser", "test@yandex.ru");
     private final Item item = new Item(1L, "testItem", "itemDescription", true, user,
@@ -54,4 +61,26 @@ public class ItemServiceWithoutMockTest {
         assertEquals(item.getDescription(), itemDto1.getDescription(), "Описания не совпадают");
         assertEquals(item.getAvailable(), itemDto1.getAvailable(), "Статусы не совпадают");
     }
-}
\ No newline at end of file
+
+    //Подтверждение брони сбрасывает закэшированный вид владельца
+    @Test
+    public void getItemAfterApprove() {
+        UserDto ownerDto = userService.create(UserMapper.toUserDto(user));
+        UserDto bookerDto = userService.create(new UserDto(null, "testBooker", "testBooker@yandex.ru"));
+        ItemDto itemDto = itemService.create(ownerDto.getId(), ItemMapper.toItemDto(item));
+
+        assertNull(itemService.getItem(itemDto.getId(), ownerDto.getId()).getNextBooking(),
+                "У вещи нет броней");
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        BookingDto bookingDto = bookingService.create(new BookingDtoSimple(null, start, start.plusDays(1),
+                itemDto.getId()), bookerDto.getId());
+        bookingService.approve(ownerDto.getId(), bookingDto.getId(), true);
+
+        ItemDtoBooking ownerView = itemService.getItem(itemDto.getId(), ownerDto.getId());
+
+        assertEquals(bookingDto.getId(), ownerView.getNextBooking().getId(), "Следующая бронь не обновлена");
+        assertNull(itemService.getItem(itemDto.getId(), bookerDto.getId()).getNextBooking(),
+                "Брони показаны не владельцу");
+    }
+}
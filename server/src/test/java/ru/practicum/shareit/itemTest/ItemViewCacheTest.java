@@ -0,0 +1,135 @@
+package ru.practicum.shareit.itemTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.dto.ItemDtoBooking;
+import ru.practicum.shareit.item.service.ItemViewCache;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ItemViewCacheTest {
+    private static final long OWNER_ID = 1L;
+    private static final long OTHER_ID = 2L;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private SimpleMeterRegistry meterRegistry;
+    private ItemViewCache itemViewCache;
+
+    @BeforeEach
+    void beforeEach() {
+        itemViewCache = itemViewCache(DataSize.ofMegabytes(1));
+    }
+
+    private ItemViewCache itemViewCache(DataSize maxBytes) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new ItemViewCache(meterRegistry, objectMapper, maxBytes, Duration.ofMinutes(1));
+    }
+
+    private static ItemDtoBooking itemDto(long itemId) {
+        return new ItemDtoBooking(itemId, "testItem", "testDescription", true, null, null, null);
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    //Владелец и остальные пользователи получают разные записи
+    @Test
+    void separateOwnerAndPublicViews() {
+        ItemDtoBooking ownerView = itemDto(1L);
+        ItemDtoBooking publicView = itemDto(1L);
+
+        itemViewCache.put(1L, OWNER_ID, true, ownerView, null, itemViewCache.ticket());
+
+        assertSame(ownerView, itemViewCache.get(1L, OWNER_ID).getValue(), "Не получен вид владельца");
+        assertNull(itemViewCache.get(1L, OTHER_ID), "Вид владельца отдан другому пользователю");
+
+        itemViewCache.put(1L, OWNER_ID, false, publicView, null, itemViewCache.ticket());
+
+        assertSame(publicView, itemViewCache.get(1L, OTHER_ID).getValue(), "Не получен общий вид");
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "hit").counter().count(),
+                "Неверное число попаданий");
+    }
+
+    //Вместе с ответом хранится его тело в JSON
+    @Test
+    void storeSerializedBody() throws Exception {
+        ItemDtoBooking itemDto = itemDto(1L);
+
+        itemViewCache.put(1L, OWNER_ID, false, itemDto, null, itemViewCache.ticket());
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(itemDto), itemViewCache.get(1L, OTHER_ID).getJson(),
+                "Неверное тело ответа");
+        assertEquals(itemViewCache.bytes(), meterRegistry.get("cache.bytes").gauge().value(),
+                "Объем кэша не опубликован");
+
+        itemViewCache.invalidate(1L);
+
+        assertEquals(0, itemViewCache.bytes(), "Объем не освобожден при инвалидации");
+    }
+
+    //При превышении бюджета в байтах вытесняется давно не читавшаяся запись
+    @Test
+    void evictLeastRecentlyUsed() {
+        itemViewCache.put(1L, OWNER_ID, false, itemDto(1L), null, itemViewCache.ticket());
+        long entryBytes = itemViewCache.bytes();
+        itemViewCache = itemViewCache(DataSize.ofBytes(entryBytes * 2));
+
+        itemViewCache.put(1L, OWNER_ID, false, itemDto(1L), null, itemViewCache.ticket());
+        itemViewCache.put(2L, OWNER_ID, false, itemDto(2L), null, itemViewCache.ticket());
+        itemViewCache.get(1L, OTHER_ID);
+        itemViewCache.put(3L, OWNER_ID, false, itemDto(3L), null, itemViewCache.ticket());
+
+        assertNull(itemViewCache.get(2L, OTHER_ID), "Не вытеснена давняя запись");
+        assertEquals(1L, itemViewCache.get(1L, OTHER_ID).getValue().getId(), "Вытеснена недавняя запись");
+        assertEquals(2, itemViewCache.size(), "Размер кэша превышен");
+        assertEquals(entryBytes * 2, itemViewCache.bytes(), "Бюджет кэша превышен");
+        assertEquals(1, count("cache.evictions"), "Вытеснение не учтено");
+    }
+
+    //Запись устаревает к началу следующей брони
+    @Test
+    void expireAtNextBooking() throws InterruptedException {
+        itemViewCache.put(1L, OWNER_ID, true, itemDto(1L), LocalDateTime.now().plusNanos(100_000_000),
+                itemViewCache.ticket());
+
+        Thread.sleep(200);
+
+        assertNull(itemViewCache.get(1L, OWNER_ID), "Получена устаревшая запись");
+        assertEquals(0, itemViewCache.size(), "Устаревшая запись не удалена");
+    }
+
+    //Ответ, собранный до инвалидации, не записывается
+    @Test
+    void skipPutAfterInvalidation() {
+        long ticket = itemViewCache.ticket();
+
+        itemViewCache.invalidateOwnerView(1L);
+        itemViewCache.put(1L, OWNER_ID, true, itemDto(1L), null, ticket);
+
+        assertNull(itemViewCache.get(1L, OWNER_ID), "Записан устаревший ответ");
+    }
+
+    //Инвалидация другой вещи не мешает записать собранный ответ
+    @Test
+    void keepPutAfterInvalidationOfOtherItem() {
+        long ticket = itemViewCache.ticket();
+
+        itemViewCache.invalidate(2L);
+        itemViewCache.invalidateOwnerView(1L);
+        itemViewCache.put(1L, OWNER_ID, false, itemDto(1L), null, ticket);
+
+        assertEquals(1L, itemViewCache.get(1L, OTHER_ID).getValue().getId(), "Ответ не записан");
+        assertEquals(1, itemViewCache.size(), "Неверный размер кэша");
+    }
+}
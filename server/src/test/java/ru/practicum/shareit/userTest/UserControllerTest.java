@@ -8,21 +8,27 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.user.controller.UserController;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -68,28 +74,78 @@ public class UserControllerTest {
     public void getUserById() throws Exception {
         Long userDtoId = userDto.getId();
 
-        when(userService.getUser(userDtoId)).thenReturn(userDto);
+        JsonResponseCache.Entry<UserDto> response = new JsonResponseCache.Entry<>(userDtoId, userDto,
+                objectMapper.writeValueAsBytes(userDto), null);
+
+        when(userService.getUserResponse(userDtoId)).thenReturn(response);
 
         mockMvc.perform(get("/users/1"))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, response.getEtag()))
                 .andExpect(content().json("{\"id\": 1,\"name\": \"test\",\"email\": \"test@yandex.ru\"}"));
 
-        verify(userService, times(1)).getUser(userDtoId);
+        verify(userService, times(1)).getUserResponse(userDtoId);
     }
 
-    //Получение всех пользователей
+    //Получение всех пользователей: массив JSON пишется в ответ по мере чтения
     @Test
     public void getAllUsers() throws Exception {
-        List<UserDto> userDtoList = new ArrayList<>();
-        userDtoList.add(userDto);
+        streamUsers(userDto);
+
+        MvcResult result = mockMvc.perform(get("/users"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("[{\"id\": 1,\"name\": \"test\",\"email\": \"test@yandex.ru\"}]"));
+
+        verify(userService, times(1)).forEachUser(any());
+    }
+
+    //Получение всех пользователей по одному объекту JSON на строку
+    @Test
+    public void getAllUsersNdjson() throws Exception {
+        UserDto userDto1 = new UserDto(2L, "test1", "test1@yandex.ru");
 
-        when(userService.getAll()).thenReturn(userDtoList);
+        streamUsers(userDto, userDto1);
 
-        mockMvc.perform(get("/users"))
+        MvcResult result = mockMvc.perform(get("/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(userDto) + "\n"
+                        + objectMapper.writeValueAsString(userDto1)));
+    }
+
+    //Полная страница пользователей отдается с курсором следующей
+    @Test
+    public void getUsersPage() throws Exception {
+        when(userService.getAll(null, 1)).thenReturn(List.of(userDto));
+
+        mockMvc.perform(get("/users").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "1"))
                 .andExpect(content().json("[{\"id\": 1,\"name\": \"test\",\"email\": \"test@yandex.ru\"}]"));
 
-        verify(userService, times(1)).getAll();
+        verify(userService, never()).forEachUser(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamUsers(UserDto... userDtos) {
+        doAnswer(invocation -> {
+            Consumer<UserDto> action = invocation.getArgument(0);
+
+            for (UserDto user : userDtos) {
+                action.accept(user);
+            }
+            return null;
+        }).when(userService).forEachUser(any(Consumer.class));
     }
 
     //Обновление данных пользователя
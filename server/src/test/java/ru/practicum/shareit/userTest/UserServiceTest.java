@@ -1,20 +1,36 @@
 package ru.practicum.shareit.userTest;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.cache.JsonResponseCache;
+import ru.practicum.shareit.directory.IdDirectory;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDtoBooking;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemViewCache;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.user.service.UserService;
 import ru.practicum.shareit.user.service.UserServiceImpl;
+import ru.practicum.shareit.user.service.UserViewCache;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -29,12 +45,19 @@ import static org.mockito.Mockito.*;
 public class UserServiceTest {
     private UserService userService;
     private UserRepository userRepository;
+    private CommentRepository commentRepository;
+    private ItemViewCache itemViewCache;
     private User user;
 
     @BeforeEach
     void beforeEach() {
         userRepository = mock(UserRepository.class);
-        userService = new UserServiceImpl(userRepository);
+        commentRepository = mock(CommentRepository.class);
+        itemViewCache = new ItemViewCache(new SimpleMeterRegistry(), Jackson2ObjectMapperBuilder.json().build(),
+                DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        userService = new UserServiceImpl(userRepository, new UserViewCache(new SimpleMeterRegistry(),
+                Jackson2ObjectMapperBuilder.json().build(), DataSize.ofMegabytes(1), Duration.ofMinutes(1)),
+                new IdDirectory(userRepository, mock(ItemRepository.class)), commentRepository, itemViewCache);
         user = createValidUserExample();
     }
 
@@ -78,16 +101,17 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findById(userId);
     }
 
-    //Получение всех пользователей
+    //Получение страницы пользователей
     @Test
     public void getAllUsers() {
         Long userId = user.getId();
 
         when(userRepository.save(any(User.class))).thenReturn(user);
-        when(userRepository.findAll()).thenReturn(Collections.singletonList(user));
+        when(userRepository.findAllByIdGreaterThanOrderById(0L, PageRequest.of(0, 10)))
+                .thenReturn(Collections.singletonList(user));
 
         userService.create(UserMapper.toUserDto(user));
-        final List<UserDto> userDtoList = userService.getAll();
+        final List<UserDto> userDtoList = userService.getAll(null, 10);
 
         assertEquals(userDtoList.size(), 1, "Пользователь отсутствует");
         assertEquals(userId, userDtoList.get(0).getId(), "Идентификаторы не совпадают");
@@ -95,7 +119,39 @@ public class UserServiceTest {
         assertEquals(user.getEmail(), userDtoList.get(0).getEmail(), "Почты не спадают");
 
         verify(userRepository, times(1)).save(any(User.class));
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).findAllByIdGreaterThanOrderById(0L, PageRequest.of(0, 10));
+    }
+
+    //Страница нулевого размера отклоняется до запроса к базе
+    @Test
+    public void getAllUsersWithZeroSize() {
+        Throwable throwable = assertThrows(ValidationException.class, () -> userService.getAll(null, 0));
+
+        assertEquals("Размер страницы должен быть больше нуля", throwable.getMessage(),
+                "Текст ошибки валидации разный");
+        verify(userRepository, never()).findAllByIdGreaterThanOrderById(anyLong(), any());
+    }
+
+    //Все пользователи читаются порциями: следующая порция - после последнего идентификатора предыдущей
+    @Test
+    public void forEachUserReadsChunks() {
+        int size = UserServiceImpl.STREAM_CHUNK_SIZE;
+        List<UserDto> firstChunk = new ArrayList<>();
+
+        for (long id = 1; id <= size; id++) {
+            firstChunk.add(new UserDto(id, "test" + id, "test" + id + "@yandex.ru"));
+        }
+        UserDto last = new UserDto(size + 1L, "last", "last@yandex.ru");
+
+        when(userRepository.findUserChunkAfter(0L, size)).thenReturn(firstChunk);
+        when(userRepository.findUserChunkAfter(size, size)).thenReturn(List.of(last));
+
+        List<UserDto> streamed = new ArrayList<>();
+        userService.forEachUser(streamed::add);
+
+        assertEquals(size + 1, streamed.size(), "Прочитаны не все пользователи");
+        assertEquals(last, streamed.get(size), "Неверный последний пользователь");
+        verify(userRepository, times(2)).findUserChunkAfter(anyLong(), anyInt());
     }
 
     //Обновление данных пользователя
@@ -154,4 +210,46 @@ public class UserServiceTest {
         assertEquals("Неверный идентификатор пользователя", throwable.getMessage(),
                 "Неверный идентификатор пользователя");
     }
-}
\ No newline at end of file
+
+    //Тело ответа кэшируется до изменения пользователя
+    @Test
+    public void getUserResponseCachedUntilUpdate() {
+        Long userId = user.getId();
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+
+        JsonResponseCache.Entry<UserDto> response = userService.getUserResponse(userId);
+
+        assertSame(response.getJson(), userService.getUserResponse(userId).getJson(), "Ответ сериализован повторно");
+        verify(userRepository, times(1)).findById(userId);
+
+        userService.update(userId, new UserDto(null, "newName", null));
+
+        JsonResponseCache.Entry<UserDto> updated = userService.getUserResponse(userId);
+
+        assertTrue(new String(updated.getJson(), StandardCharsets.UTF_8).contains("newName"),
+                "Получен устаревший пользователь");
+        assertNotEquals(response.getEtag(), updated.getEtag(), "ETag не изменился");
+    }
+
+    //Смена имени вытесняет ответы по вещам с комментариями пользователя, смена почты - нет
+    @Test
+    public void renameInvalidatesCommentedItems() {
+        Long userId = user.getId();
+        ItemDtoBooking itemDto = new ItemDtoBooking(1L, "Дрель", "Простая дрель", true, null, null,
+                List.of(new CommentDto(1L, "Отличная дрель", user.getName(), null)));
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(commentRepository.findItemIdsByAuthorId(userId)).thenReturn(List.of(1L));
+        itemViewCache.put(1L, 2L, false, itemDto, null, itemViewCache.ticket());
+
+        userService.update(userId, new UserDto(null, null, "new@yandex.ru"));
+
+        assertNotNull(itemViewCache.get(1L, userId), "Ответ вытеснен без смены имени");
+
+        userService.update(userId, new UserDto(null, "newName", null));
+
+        assertNull(itemViewCache.get(1L, userId), "Ответ с прежним именем автора остался в кэше");
+        verify(commentRepository, times(1)).findItemIdsByAuthorId(userId);
+    }
+}
@@ -11,6 +11,9 @@ import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
@@ -41,4 +44,19 @@ public class UserServiceWithoutMockTest {
         assertEquals(user.getName(), userDto1.getName(), "Имена не совпадают");
         assertEquals(user.getEmail(), userDto1.getEmail(), "Почты не совпадают");
     }
-}
\ No newline at end of file
+
+    //Все пользователи читаются порциями по порядку идентификаторов, страницы идут после курсора
+    @Test
+    public void getAllUsersStreamedAndPaged() {
+        UserDto first = userService.create(UserMapper.toUserDto(user));
+        UserDto second = userService.create(new UserDto(null, "test1", "test1@yandex.ru"));
+        UserDto third = userService.create(new UserDto(null, "test2", "test2@yandex.ru"));
+        List<UserDto> streamed = new ArrayList<>();
+
+        userService.forEachUser(streamed::add);
+
+        assertEquals(List.of(first, second, third), streamed, "Неверный поток пользователей");
+        assertEquals(List.of(first, second), userService.getAll(null, 2), "Неверная первая страница");
+        assertEquals(List.of(third), userService.getAll(second.getId(), 2), "Неверная страница после курсора");
+    }
+}